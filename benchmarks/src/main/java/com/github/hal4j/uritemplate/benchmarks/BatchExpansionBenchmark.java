@@ -0,0 +1,65 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import com.github.hal4j.uritemplate.CompiledURITemplate;
+import com.github.hal4j.uritemplate.ParamHolder;
+import com.github.hal4j.uritemplate.URITemplateParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expansion of one template for 100 000 parameter sets: one by one, in batch and in parallel batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchExpansionBenchmark {
+
+    private final CompiledURITemplate template =
+            URITemplateParser.compile("https://example.com/catalog/{category}/products/{id}{?lang,variant}");
+
+    private ParamHolder[] params;
+
+    @Setup
+    public void setup() {
+        params = new ParamHolder[100000];
+        for (int i = 0; i < params.length; i++) {
+            Map<String, Object> values = new HashMap<>();
+            values.put("category", "category " + (i % 100));
+            values.put("id", i);
+            values.put("lang", "en");
+            params[i] = ParamHolder.map(values);
+        }
+    }
+
+    @Benchmark
+    public String[] oneByOne() {
+        String[] result = new String[params.length];
+        for (int i = 0; i < params.length; i++) {
+            result[i] = template.expand(params[i], false);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public String[] batch() {
+        return template.expandAll(params);
+    }
+
+    @Benchmark
+    public String[] parallelBatch() {
+        return template.expandAllParallel(params);
+    }
+
+    @Benchmark
+    public Object[] parallelStream() {
+        return template.expandAll(Arrays.stream(params).parallel()).toArray();
+    }
+
+}
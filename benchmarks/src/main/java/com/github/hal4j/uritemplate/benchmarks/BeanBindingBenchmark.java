@@ -0,0 +1,108 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import com.github.hal4j.uritemplate.CompiledURITemplate;
+import com.github.hal4j.uritemplate.URITemplateParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.hal4j.uritemplate.ParamHolder.map;
+
+/**
+ * Expansion from properties of a domain object: bound by accessors resolved by the template,
+ * read by hand-written getter chain into variable slots and copied into a map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeanBindingBenchmark {
+
+    private final CompiledURITemplate template =
+            URITemplateParser.compile("/customers/{order.customer.id}/orders/{order.id}{?status}");
+
+    private final Link link = new Link(new Order(42, new Customer(1234567), "shipped"));
+
+    @Benchmark
+    public String boundBean() {
+        return template.expand(template.bindBean(link), false);
+    }
+
+    @Benchmark
+    public String handWrittenSlots() {
+        Order order = link.getOrder();
+        return template.expand(template.bind(order.getCustomer().getId(), order.getId(), order.getStatus()), false);
+    }
+
+    @Benchmark
+    public String handWrittenMap() {
+        Order order = link.getOrder();
+        Map<String, Object> values = new HashMap<>();
+        values.put("order.customer.id", order.getCustomer().getId());
+        values.put("order.id", order.getId());
+        values.put("status", order.getStatus());
+        return template.expand(map(values), false);
+    }
+
+    public static class Link {
+
+        private final Order order;
+
+        Link(Order order) {
+            this.order = order;
+        }
+
+        public Order getOrder() {
+            return order;
+        }
+
+        public String getStatus() {
+            return order.getStatus();
+        }
+    }
+
+    public static class Order {
+
+        private final long id;
+
+        private final Customer customer;
+
+        private final String status;
+
+        Order(long id, Customer customer, String status) {
+            this.id = id;
+            this.customer = customer;
+            this.status = status;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+    }
+
+    public static class Customer {
+
+        private final long id;
+
+        Customer(long id) {
+            this.id = id;
+        }
+
+        public long getId() {
+            return id;
+        }
+    }
+
+}
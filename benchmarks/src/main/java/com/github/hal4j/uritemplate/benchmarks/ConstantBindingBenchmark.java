@@ -0,0 +1,47 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import com.github.hal4j.uritemplate.CompiledURITemplate;
+import com.github.hal4j.uritemplate.URITemplateParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expansion of a template with host, API version and tenant fixed per deployment: constants bound once and
+ * pre-encoded into the expansion code versus all values supplied to every expansion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstantBindingBenchmark {
+
+    private CompiledURITemplate template;
+
+    private CompiledURITemplate bound;
+
+    @Setup
+    public void setUp() {
+        template = URITemplateParser.compile("https://{host}/api/{version}{/tenant,id}{?fields,tenant}");
+        Map<String, Object> constants = new HashMap<>();
+        constants.put("host", "api.example.com");
+        constants.put("version", "v2");
+        constants.put("tenant", "acme corp");
+        bound = template.bindConstants(constants);
+    }
+
+    @Benchmark
+    public String boundConstants() {
+        return bound.expand(bound.bind(42, "name,price"), false);
+    }
+
+    @Benchmark
+    public String allValuesPerExpansion() {
+        return template.expand(template.bind("api.example.com", "v2", "acme corp", 42, "name,price"), false);
+    }
+
+}
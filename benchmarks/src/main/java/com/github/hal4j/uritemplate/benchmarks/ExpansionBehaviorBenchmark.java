@@ -0,0 +1,48 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import com.github.hal4j.uritemplate.ExpansionBehavior;
+import com.github.hal4j.uritemplate.URITemplateOperator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expansion of a single varspec with scalar, list and map values
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpansionBehaviorBenchmark {
+
+    @Param({"hello", "list", "keys"})
+    public String variable;
+
+    @Param({"NONE", "PATH", "QUERY_START"})
+    public URITemplateOperator operator;
+
+    @Param({"false", "true"})
+    public boolean explode;
+
+    private ExpansionBehavior behavior;
+
+    private Object value;
+
+    private final StringBuilder result = new StringBuilder(256);
+
+    @Setup
+    public void setup() {
+        behavior = operator.behavior();
+        value = Templates.VALUES.get(variable);
+    }
+
+    @Benchmark
+    public int expand() {
+        result.setLength(0);
+        behavior.expand(variable, value, explode, null, true, result);
+        return result.length();
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import com.github.hal4j.uritemplate.CompiledURITemplate;
+import com.github.hal4j.uritemplate.ParamHolder;
+import com.github.hal4j.uritemplate.URITemplateEngine;
+import com.github.hal4j.uritemplate.URITemplateMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the engine instrumentation: cached compilation and expansion by an engine without listener,
+ * which must perform the same as before instrumentation was introduced, and by an engine with metrics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentationBenchmark {
+
+    @Param({"3"})
+    private int level;
+
+    private String template;
+
+    private URITemplateEngine plain;
+
+    private URITemplateEngine instrumented;
+
+    private ParamHolder values;
+
+    @Setup
+    public void setUp() {
+        template = Templates.forLevel(level);
+        plain = URITemplateEngine.builder().build();
+        instrumented = URITemplateEngine.builder().listener(new URITemplateMetrics()).build();
+        values = ParamHolder.map(Templates.VALUES);
+    }
+
+    @Benchmark
+    public String noListener() {
+        CompiledURITemplate compiled = plain.compile(template);
+        return compiled.expand(values, false);
+    }
+
+    @Benchmark
+    public String metrics() {
+        CompiledURITemplate compiled = instrumented.compile(template);
+        return compiled.expand(values, false);
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import com.github.hal4j.uritemplate.CompiledURITemplate;
+import com.github.hal4j.uritemplate.URITemplateParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Expansion of a query with many identifiers: a materialized list of boxed values versus a primitive array
+ * and a lazily produced stream, both written element by element without intermediate lists.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LargeValueExpansionBenchmark {
+
+    @Param({"10000"})
+    public int size;
+
+    private CompiledURITemplate template;
+
+    private long[] ids;
+
+    private List<Long> boxedIds;
+
+    @Setup
+    public void setup() {
+        template = URITemplateParser.compile("/orders{?ids}");
+        ids = LongStream.range(1_000_000, 1_000_000 + size).toArray();
+        boxedIds = LongStream.of(ids).boxed().collect(toList());
+    }
+
+    @Benchmark
+    public String list() {
+        return template.expand(template.bind(boxedIds), false);
+    }
+
+    @Benchmark
+    public String primitiveArray() {
+        return template.expand(template.bind(ids), false);
+    }
+
+    @Benchmark
+    public String stream() {
+        return template.expand(template.bind(LongStream.of(ids).mapToObj(Long::toString)), false);
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import com.github.hal4j.uritemplate.URITemplateMatch;
+import com.github.hal4j.uritemplate.URITemplateMatcher;
+import com.github.hal4j.uritemplate.URITemplateParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extraction of variables from a concrete URI: capture offsets only with reused result object,
+ * and capture plus decoding of all values.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatcherBenchmark {
+
+    private static final String URI = "/customers/1234567/orders/42/items?page=3&size=50&sort=created%20desc";
+
+    private final URITemplateMatcher matcher =
+            URITemplateParser.compile("/customers/{customer}/orders/{order}/items{?page,size,sort}").matcher();
+
+    private final URITemplateMatch match = matcher.newMatch();
+
+    @Benchmark
+    public boolean matchOffsets() {
+        return matcher.match(URI, match);
+    }
+
+    @Benchmark
+    public String matchAndDecode() {
+        matcher.match(URI, match);
+        return match.get("sort");
+    }
+
+}
@@ -0,0 +1,73 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import com.github.hal4j.uritemplate.CompiledURITemplate;
+import com.github.hal4j.uritemplate.ParamHolder;
+import com.github.hal4j.uritemplate.URITemplate;
+import com.github.hal4j.uritemplate.URITemplateParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and expansion of RFC 6570 level 1 to 4 templates: uncached parsing, expansion via static
+ * entry point and via cached compiled form, with values looked up by name or bound to variable slots.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"1", "2", "3", "4"})
+    public int level;
+
+    private String template;
+
+    private URITemplate uriTemplate;
+
+    private CompiledURITemplate compiled;
+
+    private Object[] slots;
+
+    @Setup
+    public void setup() {
+        template = Templates.forLevel(level);
+        uriTemplate = new URITemplate(template);
+        compiled = URITemplateParser.compile(template);
+        slots = compiled.slotNames().stream().map(Templates.VALUES::get).toArray();
+    }
+
+    @Benchmark
+    public CompiledURITemplate parse() {
+        return URITemplateParser.compile(template);
+    }
+
+    @Benchmark
+    public String parseAndExpand() {
+        return URITemplateParser.parseAndExpand(template, false, Templates.VALUES);
+    }
+
+    @Benchmark
+    public URITemplate expandCompiled() {
+        return uriTemplate.expand(Templates.VALUES);
+    }
+
+    @Benchmark
+    public String expandSlotBound() {
+        return compiled.expand(compiled.bind(slots), false);
+    }
+
+    @Benchmark
+    public String expandCompiledByName() {
+        return compiled.expand(ParamHolder.map(Templates.VALUES), false);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public URITemplate expandCompiledConcurrently() {
+        return uriTemplate.expand(Templates.VALUES);
+    }
+
+}
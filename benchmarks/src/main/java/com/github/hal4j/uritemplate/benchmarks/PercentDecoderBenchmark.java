@@ -0,0 +1,65 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import com.github.hal4j.uritemplate.PercentDecoder;
+import com.github.hal4j.uritemplate.PercentEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Percent-decoding of values with different character repertoires versus {@link URLDecoder}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PercentDecoderBenchmark {
+
+    @Param({"ascii", "latin1", "cjk"})
+    public String charset;
+
+    private String value;
+
+    private final StringBuilder buffer = new StringBuilder(4096);
+
+    @Setup
+    public void setup() {
+        String sample;
+        switch (charset) {
+            case "ascii":
+                sample = "order-42_abc.DEF~";
+                break;
+            case "latin1":
+                sample = "Größe Ärger café ";
+                break;
+            case "cjk":
+                sample = "統一資源識別子テンプレート";
+                break;
+            default:
+                throw new IllegalArgumentException(charset);
+        }
+        value = PercentEncoder.DEFAULT.encode(sample + sample + sample);
+    }
+
+    @Benchmark
+    public String decode() {
+        return PercentDecoder.decode(value);
+    }
+
+    @Benchmark
+    public StringBuilder decodeToBuffer() {
+        buffer.setLength(0);
+        PercentDecoder.decodeTo(value, 0, value.length(), buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public String urlDecoder() throws UnsupportedEncodingException {
+        return URLDecoder.decode(value, "UTF-8");
+    }
+
+}
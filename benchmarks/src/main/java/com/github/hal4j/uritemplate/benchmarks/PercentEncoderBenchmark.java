@@ -0,0 +1,76 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import com.github.hal4j.uritemplate.PercentEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Percent-encoding of values with different character repertoires
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PercentEncoderBenchmark {
+
+    @Param({"ascii", "latin1", "cjk", "emoji"})
+    public String charset;
+
+    @Param({"16", "256"})
+    public int length;
+
+    private String value;
+
+    private final StringBuilder buffer = new StringBuilder(4096);
+
+    @Setup
+    public void setup() {
+        String sample;
+        switch (charset) {
+            case "ascii":
+                sample = "order-42_abc.DEF~";
+                break;
+            case "latin1":
+                sample = "Größe Ärger café ";
+                break;
+            case "cjk":
+                sample = "統一資源識別子テンプレート";
+                break;
+            case "emoji":
+                sample = "😀🚀🎉 ok ";
+                break;
+            default:
+                throw new IllegalArgumentException(charset);
+        }
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append(sample);
+        }
+        sb.setLength(length);
+        if (Character.isHighSurrogate(sb.charAt(length - 1))) {
+            sb.setCharAt(length - 1, 'x');
+        }
+        value = sb.toString();
+    }
+
+    @Benchmark
+    public String encodeUnreserved() {
+        return PercentEncoder.DEFAULT.encode(value);
+    }
+
+    @Benchmark
+    public String encodeReserved() {
+        return PercentEncoder.LITERAL.encode(value);
+    }
+
+    @Benchmark
+    public int encodeToBuffer() {
+        buffer.setLength(0);
+        PercentEncoder.DEFAULT.encodeTo(value, 0, value.length(), buffer);
+        return buffer.length();
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import com.github.hal4j.uritemplate.CompiledURITemplate;
+import com.github.hal4j.uritemplate.URITemplateRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost of a registry of link templates compiled on the common pool and on a single thread,
+ * and the cost of a lookup by name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryBenchmark {
+
+    @Param({"20000"})
+    private int size;
+
+    private ForkJoinPool singleThread;
+
+    private URITemplateRegistry registry;
+
+    @Setup
+    public void setUp() {
+        singleThread = new ForkJoinPool(1);
+        registry = build(ForkJoinPool.commonPool());
+    }
+
+    @TearDown
+    public void tearDown() {
+        singleThread.shutdown();
+    }
+
+    @Benchmark
+    public URITemplateRegistry buildParallel() {
+        return build(ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public URITemplateRegistry buildSingleThread() {
+        return build(singleThread);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public CompiledURITemplate lookup() {
+        return registry.get("link" + (size / 2));
+    }
+
+    private URITemplateRegistry build(ForkJoinPool pool) {
+        URITemplateRegistry.Builder builder = URITemplateRegistry.builder().pool(pool);
+        for (int i = 0; i < size; i++) {
+            builder.template("link" + i, "https://api.example.com/v" + (i % 3) + "/resource" + i + "{/id}{?fields,page,size}");
+        }
+        return builder.build();
+    }
+
+}
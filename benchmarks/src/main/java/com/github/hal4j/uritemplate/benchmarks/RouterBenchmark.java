@@ -0,0 +1,92 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import com.github.hal4j.uritemplate.URITemplateMatch;
+import com.github.hal4j.uritemplate.URITemplateMatcher;
+import com.github.hal4j.uritemplate.URITemplateParser;
+import com.github.hal4j.uritemplate.URITemplateRouter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispatching URIs to one of N templates: prefix tree lookup with and without the result cache,
+ * compared with matching the templates one by one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouterBenchmark {
+
+    private static final int URIS = 1024;
+
+    @Param({"10", "100", "1000", "10000", "100000"})
+    public int routes;
+
+    private URITemplateRouter<Integer> router;
+
+    private URITemplateRouter<Integer> uncachedRouter;
+
+    private URITemplateMatcher[] matchers;
+
+    private String[] uris;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        URITemplateRouter.Builder<Integer> cached = URITemplateRouter.builder();
+        URITemplateRouter.Builder<Integer> uncached = URITemplateRouter.<Integer>builder().cacheSize(0);
+        matchers = new URITemplateMatcher[routes];
+        for (int i = 0; i < routes; i++) {
+            String template = template(i);
+            cached.route(template, i);
+            uncached.route(template, i);
+            matchers[i] = URITemplateParser.compile(template).matcher();
+        }
+        router = cached.build();
+        uncachedRouter = uncached.build();
+        Random random = new Random(42);
+        uris = new String[URIS];
+        for (int i = 0; i < URIS; i++) {
+            int route = random.nextInt(routes);
+            uris[i] = route % 2 == 0
+                    ? "/api/service" + (route / 2) + "/orders/" + random.nextInt(100000)
+                    : "/api/service" + (route / 2) + "/orders/" + random.nextInt(100000) + "/items?page=2&size=20";
+        }
+    }
+
+    private static String template(int i) {
+        return i % 2 == 0
+                ? "/api/service" + (i / 2) + "/orders/{id}"
+                : "/api/service" + (i / 2) + "/orders/{id}/items{?page,size}";
+    }
+
+    private String nextUri() {
+        return uris[next++ & (URIS - 1)];
+    }
+
+    @Benchmark
+    public URITemplateRouter.Route<Integer> tree() {
+        return uncachedRouter.route(nextUri());
+    }
+
+    @Benchmark
+    public URITemplateRouter.Route<Integer> treeWithCache() {
+        return router.route(nextUri());
+    }
+
+    @Benchmark
+    public URITemplateMatch linearScan() {
+        String uri = nextUri();
+        for (URITemplateMatcher matcher : matchers) {
+            URITemplateMatch match = matcher.match(uri);
+            if (match != null) return match;
+        }
+        return null;
+    }
+
+}
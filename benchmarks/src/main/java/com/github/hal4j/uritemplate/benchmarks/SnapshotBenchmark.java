@@ -0,0 +1,59 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import com.github.hal4j.uritemplate.URITemplateRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold-start cost of a registry of link templates: parsing the template strings versus loading
+ * the compiled form from a memory-mapped binary snapshot, both on a single thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    @Param({"100000"})
+    private int size;
+
+    private ForkJoinPool singleThread;
+
+    private Path snapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        singleThread = new ForkJoinPool(1);
+        snapshot = Files.createTempFile("templates", ".snapshot");
+        parse().writeSnapshot(snapshot);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        singleThread.shutdown();
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public URITemplateRegistry parse() {
+        URITemplateRegistry.Builder builder = URITemplateRegistry.builder().pool(singleThread);
+        for (int i = 0; i < size; i++) {
+            builder.template("link" + i, "https://api.example.com/v" + (i % 3) + "/resource" + i
+                    + "{/id}/items{?fields,page,size}{&filter*}");
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public URITemplateRegistry loadSnapshot() throws IOException {
+        return URITemplateRegistry.builder().pool(singleThread).snapshot(snapshot).build();
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import com.github.hal4j.uritemplate.CompiledURITemplate;
+import com.github.hal4j.uritemplate.URITemplateCache;
+import com.github.hal4j.uritemplate.URITemplateEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention of the compiled template cache: lookups of a hot working set that fits into the cache
+ * and of a working set twice as large as the cache, which keeps the eviction running.
+ * Run with <code>-t 1,2,4,...</code> to see the scaling with the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateCacheBenchmark {
+
+    private static final int CACHE_SIZE = 1024;
+
+    @Param({"512", "2048"})
+    public int workingSet;
+
+    private URITemplateCache cache;
+
+    private String[] templates;
+
+    @Setup
+    public void setup() {
+        cache = URITemplateEngine.builder().cacheSize(CACHE_SIZE).build().cache();
+        templates = new String[workingSet];
+        for (int i = 0; i < workingSet; i++) {
+            templates[i] = "http://www.example.com/api/v" + i + "{/id}{?page,size}";
+        }
+    }
+
+    @Benchmark
+    public CompiledURITemplate lookup() {
+        return cache.get(templates[ThreadLocalRandom.current().nextInt(templates.length)]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public CompiledURITemplate lookupConcurrently() {
+        return lookup();
+    }
+
+}
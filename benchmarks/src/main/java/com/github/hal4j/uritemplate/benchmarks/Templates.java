@@ -0,0 +1,51 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Templates and values from RFC 6570 examples grouped by the template level
+ */
+final class Templates {
+
+    static final Map<String, Object> VALUES;
+
+    static {
+        Map<String, Object> values = new HashMap<>();
+        values.put("var", "value");
+        values.put("hello", "Hello World!");
+        values.put("path", "/foo/bar");
+        values.put("x", "1024");
+        values.put("y", "768");
+        values.put("empty", "");
+        values.put("list", Arrays.asList("red", "green", "blue"));
+        Map<String, String> keys = new LinkedHashMap<>();
+        keys.put("semi", ";");
+        keys.put("dot", ".");
+        keys.put("comma", ",");
+        values.put("keys", Collections.unmodifiableMap(keys));
+        VALUES = Collections.unmodifiableMap(values);
+    }
+
+    static String forLevel(int level) {
+        switch (level) {
+            case 1:
+                return "http://www.example.com/api/{var}/items/{hello}";
+            case 2:
+                return "http://www.example.com{+path}/here?ref={var}{#hello}";
+            case 3:
+                return "http://www.example.com{/var,x}/here{?x,y,empty}{&hello}";
+            case 4:
+                return "http://www.example.com{/list*,path:4}{;x,y,empty}{?keys*}{&list}";
+            default:
+                throw new IllegalArgumentException("Unknown level: " + level);
+        }
+    }
+
+    private Templates() {
+    }
+
+}
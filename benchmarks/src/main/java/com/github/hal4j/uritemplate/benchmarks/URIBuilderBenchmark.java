@@ -0,0 +1,52 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import com.github.hal4j.uritemplate.URIBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.hal4j.uritemplate.URITemplateVariable.queryStart;
+
+/**
+ * Construction of URIs and URI templates with the builder DSL
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class URIBuilderBenchmark {
+
+    @Benchmark
+    public URI buildURI() {
+        return URIBuilder.basedOn("http://www.example.com")
+                .relative("api", "orders", 42)
+                .queryParam("page", 3)
+                .queryParam("sort", "date desc")
+                .toURI();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public URI buildURIConcurrently() {
+        return buildURI();
+    }
+
+    @Benchmark
+    public String buildTemplate() {
+        return URIBuilder.basedOn("http://www.example.com")
+                .relative("api", "orders")
+                .append(queryStart("page"))
+                .toString();
+    }
+
+    @Benchmark
+    public String buildTemplateFromEncodedURI() {
+        return URIBuilder.basedOn("https://www.example.com/catalog/summer%20sale/items?q=red%20shoes&size=42#reviews")
+                .append(queryStart("page"))
+                .toString();
+    }
+
+}
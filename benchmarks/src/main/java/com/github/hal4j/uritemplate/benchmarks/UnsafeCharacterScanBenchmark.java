@@ -0,0 +1,67 @@
+package com.github.hal4j.uritemplate.benchmarks;
+
+import com.github.hal4j.uritemplate.PercentEncoder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search of the first character that needs encoding in values that do not need it at all
+ * (identifiers, slugs, hashes): grouped table lookups of {@link PercentEncoder} against
+ * a plain loop over a <code>boolean[]</code> table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnsafeCharacterScanBenchmark {
+
+    @Param({"8", "40", "256"})
+    public int length;
+
+    @Param({"unreserved", "reserved"})
+    public String set;
+
+    private String value;
+
+    private PercentEncoder encoder;
+
+    private boolean[] table;
+
+    @Setup
+    public void setup() {
+        String allowed = "unreserved".equals(set)
+                ? PercentEncoder.UNRESERVED
+                : PercentEncoder.RESERVED + PercentEncoder.UNRESERVED;
+        encoder = "unreserved".equals(set) ? PercentEncoder.DEFAULT : PercentEncoder.LITERAL;
+        table = new boolean[128];
+        for (int i = 0; i < allowed.length(); i++) {
+            table[allowed.charAt(i)] = true;
+        }
+        StringBuilder sb = new StringBuilder(length);
+        String hex = "0123456789abcdef-_.~";
+        for (int i = 0; i < length; i++) {
+            sb.append(hex.charAt((i * 7) % hex.length()));
+        }
+        value = sb.toString();
+    }
+
+    @Benchmark
+    public int groupedLookup() {
+        return encoder.firstUnsafe(value, 0, value.length());
+    }
+
+    @Benchmark
+    public int loop() {
+        String s = value;
+        boolean[] allowed = table;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= allowed.length || !allowed[c]) return i;
+        }
+        return s.length();
+    }
+
+}
@@ -0,0 +1,258 @@
+package com.github.hal4j.uritemplate;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Resolves variable names to property accessors of Java objects. A property <code>name</code> is read by
+ * public method <code>getName()</code>, <code>isName()</code>, the accessor <code>name()</code> of a record component
+ * or by public field <code>name</code>, in this order. Methods declared by {@link Object}, such as
+ * <code>getClass()</code>, and other methods without arguments are never invoked, so variables cannot trigger
+ * side effects of the bean. Dotted names such as <code>order.customer.id</code>
+ * are resolved as chains of properties, where undefined (<code>null</code>) intermediate value makes
+ * the whole variable undefined, and intermediate maps are queried by key.
+ * <p>
+ * Reflection is only used to find the accessors: accessor methods are invoked via functions generated
+ * by {@link LambdaMetafactory}, or via method handles if the declaring class is not accessible or is not visible
+ * from the class loader of this library.
+ * Each property of a chain is resolved against the declared type of the previous property; if it is not found
+ * there, it is resolved against the runtime class of the value and cached per class.
+ * </p>
+ */
+final class BeanAccessors {
+
+    private static final Function<Object, Object> UNDEFINED = bean -> null;
+
+    private static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    // Class.getRecordComponents() and RecordComponent.getName(), looked up reflectively to run on Java 8
+    private static final Method GET_RECORD_COMPONENTS = recordMethod("java.lang.Class", "getRecordComponents");
+
+    private static final Method RECORD_COMPONENT_NAME = recordMethod("java.lang.reflect.RecordComponent", "getName");
+
+    private static final ClassValue<Map<String, Function<Object, Object>>> BY_RUNTIME_CLASS =
+            new ClassValue<Map<String, Function<Object, Object>>>() {
+                @Override
+                protected Map<String, Function<Object, Object>> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+    private BeanAccessors() {
+    }
+
+    /**
+     * Resolves accessor of the variable with given name
+     * @param type the class of the objects the accessor will be applied to
+     * @param name the variable name, possibly dotted
+     * @return the accessor function, returning <code>null</code> if the variable is undefined
+     */
+    static Function<Object, Object> resolve(Class<?> type, String name) {
+        List<Function<Object, Object>> chain = new ArrayList<>();
+        Class<?> current = type;
+        int from = 0;
+        while (from <= name.length()) {
+            int to = name.indexOf(URIVarComponent.NAME_SEPARATOR, from);
+            if (to < 0) to = name.length();
+            String property = name.substring(from, to);
+            Member member = current != null ? find(current, property) : null;
+            if (member != null) {
+                chain.add(member.accessor);
+                current = member.type;
+            } else if (chain.isEmpty()) {
+                return UNDEFINED; // the bean itself has no such property, so it is never defined
+            } else {
+                chain.add(dynamic(property));
+                current = null;
+            }
+            from = to + 1;
+        }
+        return chain.size() == 1 ? chain.get(0) : new Chain(chain);
+    }
+
+    /**
+     * Resolves accessors of the variables with given names
+     * @param type the class of the objects the accessors will be applied to
+     * @param names the variable names
+     * @return the accessor functions in the order of the names
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Function<Object, Object>[] resolveAll(Class<?> type, String[] names) {
+        Function<Object, Object>[] accessors = new Function[names.length];
+        for (int i = 0; i < accessors.length; i++) {
+            accessors[i] = resolve(type, names[i]);
+        }
+        return accessors;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> dynamic(String property) {
+        return value -> {
+            if (value instanceof Map) {
+                return ((Map<Object, Object>) value).get(property);
+            }
+            Function<Object, Object> accessor = BY_RUNTIME_CLASS.get(value.getClass()).computeIfAbsent(property,
+                    p -> {
+                        Member member = find(value.getClass(), p);
+                        return member != null ? member.accessor : UNDEFINED;
+                    });
+            return accessor.apply(value);
+        };
+    }
+
+    private static Member find(Class<?> type, String property) {
+        if (Map.class.isAssignableFrom(type)) {
+            return new Member(dynamic(property), null);
+        }
+        if (property.isEmpty() || !Character.isJavaIdentifierStart(property.charAt(0))) {
+            return null;
+        }
+        String suffix = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        Method method = method(type, "get" + suffix);
+        if (method == null) {
+            method = method(type, "is" + suffix);
+            if (method != null && method.getReturnType() != boolean.class && method.getReturnType() != Boolean.class) {
+                method = null;
+            }
+        }
+        if (method == null && isRecordComponent(type, property)) {
+            method = method(type, property);
+        }
+        try {
+            if (method != null) {
+                return new Member(accessor(method), method.getReturnType());
+            }
+            Field field = type.getField(property);
+            if (Modifier.isStatic(field.getModifiers())) return null;
+            field.setAccessible(true);
+            MethodHandle getter = MethodHandles.lookup().unreflectGetter(field).asType(ACCESSOR_TYPE);
+            return new Member(invoker(getter), field.getType());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null; // no such field or inaccessible member, e.g. of a class in a module that is not open
+        }
+    }
+
+    private static Method method(Class<?> type, String name) {
+        try {
+            Method method = type.getMethod(name);
+            if (Modifier.isStatic(method.getModifiers()) || method.getReturnType() == void.class
+                    || method.getDeclaringClass() == Object.class) return null;
+            return method;
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static boolean isRecordComponent(Class<?> type, String property) {
+        if (GET_RECORD_COMPONENTS == null) return false;
+        try {
+            Object[] components = (Object[]) GET_RECORD_COMPONENTS.invoke(type); // null if not a record
+            if (components == null) return false;
+            for (Object component : components) {
+                if (property.equals(RECORD_COMPONENT_NAME.invoke(component))) return true;
+            }
+            return false;
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    private static Method recordMethod(String className, String name) {
+        try {
+            return Class.forName(className).getMethod(name);
+        } catch (ReflectiveOperationException e) {
+            return null; // runtime without records
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> accessor(Method method) throws ReflectiveOperationException {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Class<?> declaringClass = method.getDeclaringClass();
+        // the generated function is defined by the class loader of this class, so that it fails to link
+        // if the bean is loaded by a child class loader, e.g. of a web application or a plugin
+        if (Modifier.isPublic(declaringClass.getModifiers())
+                && isVisible(declaringClass) && isVisible(method.getReturnType())) {
+            try {
+                MethodHandle handle = lookup.unreflect(method);
+                CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+                        MethodType.methodType(Function.class),
+                        ACCESSOR_TYPE.erase(),
+                        handle,
+                        MethodType.methodType(method.getReturnType(), declaringClass).wrap());
+                return (Function<Object, Object>) site.getTarget().invokeExact();
+            } catch (Throwable e) {
+                // fall back to method handle below
+            }
+        }
+        method.setAccessible(true);
+        return invoker(lookup.unreflect(method).asType(ACCESSOR_TYPE));
+    }
+
+    private static boolean isVisible(Class<?> type) {
+        while (type.isArray()) type = type.getComponentType();
+        if (type.isPrimitive()) return true;
+        try {
+            return Class.forName(type.getName(), false, BeanAccessors.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static Function<Object, Object> invoker(MethodHandle handle) {
+        return bean -> {
+            try {
+                return (Object) handle.invokeExact(bean);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private static final class Member {
+
+        final Function<Object, Object> accessor;
+
+        // declared type of the property or null if unknown
+        final Class<?> type;
+
+        Member(Function<Object, Object> accessor, Class<?> type) {
+            this.accessor = accessor;
+            this.type = type != null && type.isPrimitive() ? null : type;
+        }
+    }
+
+    private static final class Chain implements Function<Object, Object> {
+
+        private final Function<Object, Object>[] accessors;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Chain(List<Function<Object, Object>> accessors) {
+            this.accessors = accessors.toArray(new Function[0]);
+        }
+
+        @Override
+        public Object apply(Object bean) {
+            Object value = bean;
+            for (Function<Object, Object> accessor : accessors) {
+                value = accessor.apply(value);
+                if (value == null) return null;
+            }
+            return value;
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.github.hal4j.uritemplate;
+
+import java.util.function.Function;
+
+/**
+ * Parameter holder reading variable values from properties of an object
+ * (see {@link CompiledURITemplate#bindBean(Object)}).
+ */
+final class BeanParams extends SlotBinding {
+
+    private final Object bean;
+
+    private final String[] names;
+
+    private final Function<Object, Object>[] accessors;
+
+    BeanParams(Object bean, String[] names, Function<Object, Object>[] accessors) {
+        this.bean = bean;
+        this.names = names;
+        this.accessors = accessors;
+    }
+
+    @Override
+    Object get(int slot, String name) {
+        if (slot < names.length && names[slot] == name) {
+            return accessors[slot].apply(bean);
+        }
+        return get(name);
+    }
+
+    @Override
+    public boolean containsKey(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    @Override
+    public Object get(String name) {
+        int slot = indexOf(name);
+        return slot < 0 ? null : accessors[slot].apply(bean);
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,193 @@
+package com.github.hal4j.uritemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Character sink writing UTF-8 bytes of the appended characters to a byte buffer or an output stream.
+ * Expansion results are ASCII except for the literal segments and some names, so every ASCII character
+ * is written as a single byte without going through a charset encoder. Literal segments of compiled templates
+ * are written as pre-encoded byte arrays via {@link #write(byte[])}.
+ */
+abstract class ByteSink implements Appendable {
+
+    private static final byte REPLACEMENT = '?';
+
+    private final int limit;
+
+    private int count;
+
+    private char highSurrogate;
+
+    ByteSink(int limit) {
+        this.limit = limit;
+    }
+
+    static ByteSink of(ByteBuffer buffer, int limit) {
+        return new ByteBufferSink(buffer, limit);
+    }
+
+    static ByteSink of(OutputStream stream, int limit) {
+        return new OutputStreamSink(stream, limit);
+    }
+
+    /**
+     * Writes pre-encoded bytes of a literal segment
+     * @param bytes UTF-8 bytes
+     * @throws IOException if the underlying stream fails
+     */
+    void write(byte[] bytes) throws IOException {
+        consume(bytes.length);
+        put(bytes);
+    }
+
+    /**
+     * Writes pending bytes to the underlying stream, if any
+     * @throws IOException if the underlying stream fails
+     */
+    void flush() throws IOException {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            consume(1);
+            put(REPLACEMENT);
+        }
+    }
+
+    abstract void put(byte b) throws IOException;
+
+    abstract void put(byte[] bytes) throws IOException;
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            append(csq.charAt(i));
+        }
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+        if (c < 0x80 && highSurrogate == 0) {
+            consume(1);
+            put((byte) c);
+        } else {
+            appendNonAscii(c);
+        }
+        return this;
+    }
+
+    private void appendNonAscii(char c) throws IOException {
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int cp = Character.toCodePoint(high, c);
+                consume(4);
+                put((byte) (0xF0 | (cp >> 18)));
+                put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                put((byte) (0x80 | (cp & 0x3F)));
+                return;
+            }
+            consume(1);
+            put(REPLACEMENT);
+            append(c);
+        } else if (c < 0x800) {
+            consume(2);
+            put((byte) (0xC0 | (c >> 6)));
+            put((byte) (0x80 | (c & 0x3F)));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            consume(1);
+            put(REPLACEMENT);
+        } else {
+            consume(3);
+            put((byte) (0xE0 | (c >> 12)));
+            put((byte) (0x80 | ((c >> 6) & 0x3F)));
+            put((byte) (0x80 | (c & 0x3F)));
+        }
+    }
+
+    private void consume(int length) {
+        count += length;
+        if (count > limit || count < 0) {
+            throw new IllegalArgumentException("Expansion exceeds the limit of " + limit + " characters");
+        }
+    }
+
+    private static final class ByteBufferSink extends ByteSink {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferSink(ByteBuffer buffer, int limit) {
+            super(limit);
+            this.buffer = buffer;
+        }
+
+        @Override
+        void put(byte b) {
+            buffer.put(b);
+        }
+
+        @Override
+        void put(byte[] bytes) {
+            buffer.put(bytes);
+        }
+    }
+
+    private static final class OutputStreamSink extends ByteSink {
+
+        private final OutputStream stream;
+
+        private final byte[] chunk = new byte[256];
+
+        private int position;
+
+        OutputStreamSink(OutputStream stream, int limit) {
+            super(limit);
+            this.stream = stream;
+        }
+
+        @Override
+        void put(byte b) throws IOException {
+            if (position == chunk.length) {
+                drain();
+            }
+            chunk[position++] = b;
+        }
+
+        @Override
+        void put(byte[] bytes) throws IOException {
+            if (bytes.length > chunk.length - position) {
+                drain();
+                if (bytes.length > chunk.length) {
+                    stream.write(bytes);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, 0, chunk, position, bytes.length);
+            position += bytes.length;
+        }
+
+        @Override
+        void flush() throws IOException {
+            super.flush();
+            drain();
+        }
+
+        private void drain() throws IOException {
+            if (position > 0) {
+                stream.write(chunk, 0, position);
+                position = 0;
+            }
+        }
+    }
+
+}
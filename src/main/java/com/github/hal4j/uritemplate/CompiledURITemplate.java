@@ -0,0 +1,707 @@
+package com.github.hal4j.uritemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Immutable parsed form of an URI template: a sequence of literal segments interleaved with
+ * template expressions. Literal <code>i</code> always precedes expression <code>i</code>,
+ * the last literal follows the last expression, so there is always one literal more than expressions.
+ * Instances are safe to share between threads.
+ * <p>
+ * Expansion is initially performed by walking the parsed expressions. Once a template has been fully
+ * expanded {@link URITemplateEngine#specializationThreshold()} times, specialized expansion code is built for it
+ * (see {@link #specialize()}) and used for all subsequent full expansions.
+ * </p>
+ */
+public final class CompiledURITemplate {
+
+    private final URITemplateEngine engine;
+
+    private final String value;
+
+    private final String[] literals;
+
+    private final URITemplateVariable[] expressions;
+
+    // distinct variable names in the order of first occurrence, not including the constants
+    private final String[] slotNames;
+
+    // values folded into the specialized code by bindConstants(), null for ordinary templates
+    private final ParamHolder constants;
+
+    // approximate counter: lost updates under contention only delay specialization
+    private int expansions;
+
+    private volatile URITemplateSpecializer.Segment[] specialized;
+
+    /**
+     * Upper bound of the learned capacity, so that a single huge expansion does not inflate all further allocations
+     */
+    private static final int MAX_CAPACITY_HINT = 8192;
+
+    // the longest expansion result seen so far: buffers of this size are never grown and copied while expanding;
+    // racy updates are harmless, since the hint only affects performance
+    private int capacityHint;
+
+    /**
+     * The minimal number of expansions worth running in a separate task
+     */
+    private static final int MIN_CHUNK = 256;
+
+    // per-thread buffers for streamed expansion, dropped if they grow too large to keep
+    private static final ThreadLocal<StringBuilder> BUFFERS = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    // accessors of the variables resolved per class of bound objects, created on first binding;
+    // racy initialization may only cause the accessors to be resolved twice
+    private volatile ClassValue<Function<Object, Object>[]> beanPlans;
+
+    private volatile URITemplateMatcher matcher;
+
+    // UTF-8 encoded literals, initialized on first expansion to bytes
+    private volatile byte[][] literalBytes;
+
+    CompiledURITemplate(URITemplateEngine engine, String value, String[] literals, URITemplateVariable[] expressions) {
+        this(engine, value, literals, expressions, null);
+    }
+
+    private CompiledURITemplate(URITemplateEngine engine, String value, String[] literals,
+                                URITemplateVariable[] expressions, ParamHolder constants) {
+        this.engine = engine;
+        this.value = value;
+        this.literals = literals;
+        this.expressions = expressions;
+        this.constants = constants;
+        this.slotNames = slotNames(expressions, constants);
+        this.capacityHint = Math.min(value.length(), MAX_CAPACITY_HINT);
+        if (constants != null) {
+            this.specialized = URITemplateSpecializer.specialize(literals, expressions, slotNames, constants);
+        }
+    }
+
+    /**
+     * @return the template string this object was compiled from
+     */
+    public String value() {
+        return value;
+    }
+
+    /**
+     * @return the engine this template was compiled by
+     */
+    public URITemplateEngine engine() {
+        return engine;
+    }
+
+    /**
+     * @return <code>true</code> if this template does not contain any expressions
+     */
+    public boolean isExpanded() {
+        return expressions.length == 0;
+    }
+
+    /**
+     * @return unmodifiable list of the template expressions in the order of their occurrence
+     */
+    public List<URITemplateVariable> variables() {
+        return Collections.unmodifiableList(asList(expressions));
+    }
+
+    /**
+     * Returns the names of variables of this template in the order of their first occurrence.
+     * The index of a name in this list is the slot of the variable used by {@link #bind(Object...)}.
+     * @return unmodifiable list of distinct variable names
+     */
+    public List<String> slotNames() {
+        return Collections.unmodifiableList(asList(slotNames));
+    }
+
+    String[] literals() {
+        return literals;
+    }
+
+    URITemplateVariable[] expressions() {
+        return expressions;
+    }
+
+    String[] slotNameArray() {
+        return slotNames;
+    }
+
+    /**
+     * @param name the variable name
+     * @return the slot of given variable or <code>-1</code> if this template does not contain such variable
+     */
+    public int slotOf(String name) {
+        for (int i = 0; i < slotNames.length; i++) {
+            if (slotNames[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Binds parameter values to the variable slots of this template. Full expansion of this template
+     * with the returned holder reads the values by slot index without any lookup by name.
+     * The array is not copied, so a new array should be used for each call when expanding concurrently.
+     * @param slots the values of the variables in the order of {@link #slotNames()},
+     *              <code>null</code> for undefined variables
+     * @return parameter holder backed by given array
+     * @throws IllegalArgumentException if the number of values does not match the number of slots
+     */
+    public SlotParams bind(Object... slots) {
+        if (slots.length != slotNames.length) {
+            throw new IllegalArgumentException("Template " + value + " has " + slotNames.length
+                    + " variable slots, but " + slots.length + " values given");
+        }
+        return new SlotParams(slotNames, slots);
+    }
+
+    /**
+     * Binds properties of given object to the variables of this template. Variable <code>name</code>
+     * is read by public method <code>getName()</code>, <code>isName()</code>, the accessor <code>name()</code>
+     * of a record component or by public field <code>name</code>. Methods declared by {@link Object}
+     * and other methods are not invoked, e.g. <code>{class}</code> is undefined. Dotted variable names, e.g.
+     * <code>order.customer.id</code>, are read as chains of properties, where <code>null</code> intermediate
+     * value makes the variable undefined, and intermediate maps are queried by key.
+     * Variables not matching any property of the object are undefined.
+     * <p>
+     * The accessors are resolved once for each class of bound objects and invoked directly
+     * without reflection when this template is expanded.
+     * </p>
+     * @param bean the object to read values of the variables from
+     * @return parameter holder reading properties of given object
+     */
+    public ParamHolder bindBean(Object bean) {
+        if (bean == null) {
+            throw new NullPointerException("bean");
+        }
+        ClassValue<Function<Object, Object>[]> plans = this.beanPlans;
+        if (plans == null) {
+            plans = new ClassValue<Function<Object, Object>[]>() {
+                @Override
+                protected Function<Object, Object>[] computeValue(Class<?> type) {
+                    return BeanAccessors.resolveAll(type, slotNames);
+                }
+            };
+            this.beanPlans = plans;
+        }
+        return new BeanParams(bean, slotNames, plans.get(bean.getClass()));
+    }
+
+    /**
+     * Binds the values of some variables of this template once, returning the template with these values folded
+     * into its specialized expansion code: expressions consisting only of constants become literal text, and
+     * constants in expressions with other variables are pre-encoded together with their prefix and separator,
+     * so that expansion only decides whether the operator prefix or the separator precedes them.
+     * Unlike partial expansion, the result keeps the exact expansion semantics of the original template, e.g.
+     * <code>{/tenant,id}</code> with constant <code>tenant</code> still expands to <code>/t1</code> if
+     * <code>id</code> is undefined. Constants with <code>null</code> value are bound as undefined.
+     * <p>
+     * The returned template has the same {@link #value()} and {@link #variables()} as this template,
+     * while its {@link #slotNames()} and matcher only include the variables that remain to be bound.
+     * Constants take precedence over the values supplied at expansion time.
+     * Iterators and streams, which can be consumed only once, are copied into lists when bound.
+     * </p>
+     * @param constants the values of the variables to bind
+     * @return new template with given constants bound
+     */
+    public CompiledURITemplate bindConstants(Map<String, ?> constants) {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, ?> entry : constants.entrySet()) {
+            copy.put(entry.getKey(), reusable(entry.getValue()));
+        }
+        ParamHolder bound = ParamHolder.map(Collections.unmodifiableMap(copy));
+        if (this.constants != null) bound = layered(bound, this.constants);
+        return new CompiledURITemplate(engine, value, literals, expressions, bound);
+    }
+
+    private static Object reusable(Object value) {
+        Iterator<?> items;
+        if (value instanceof Iterator) {
+            items = (Iterator<?>) value;
+        } else if (value instanceof Stream) {
+            items = ((Stream<?>) value).iterator();
+        } else {
+            return value;
+        }
+        List<Object> list = new ArrayList<>();
+        items.forEachRemaining(list::add);
+        return Collections.unmodifiableList(list);
+    }
+
+    private static ParamHolder layered(ParamHolder first, ParamHolder second) {
+        return new ParamHolder() {
+            @Override
+            public boolean containsKey(String name) {
+                return first.containsKey(name) || second.containsKey(name);
+            }
+
+            @Override
+            public Object get(String name) {
+                return first.containsKey(name) ? first.get(name) : second.get(name);
+            }
+        };
+    }
+
+    /**
+     * Returns matcher extracting values of the variables of this template from concrete URIs
+     * @return the matcher, built on first call
+     * @see URITemplateMatcher
+     */
+    public URITemplateMatcher matcher() {
+        URITemplateMatcher matcher = this.matcher;
+        if (matcher == null) {
+            matcher = new URITemplateMatcher(literals, expressions, slotNames);
+            this.matcher = matcher;
+        }
+        return matcher;
+    }
+
+    /**
+     * Fully or partially expand this template using custom parameter holder
+     * @param params the custom parameter holder
+     * @param partial indicates whether partial or full expansion must be performed
+     * @return the result of the expansion
+     */
+    public String expand(ParamHolder params, boolean partial) {
+        if (expressions.length == 0) return value;
+        if (partial) {
+            StringBuilder result = new StringBuilder(capacityHint);
+            expandPartialTo(params, result);
+            return result.toString();
+        }
+        int hint = capacityHint;
+        StringBuilder result = new StringBuilder(hint);
+        expandTo(params, result);
+        int length = result.length();
+        if (length > hint && length <= MAX_CAPACITY_HINT) {
+            capacityHint = length;
+        }
+        return result.toString();
+    }
+
+    /**
+     * Fully or partially expand this template, appending the result to given string builder
+     * @param params the custom parameter holder
+     * @param partial indicates whether partial or full expansion must be performed
+     * @param result the string builder to append the result to
+     */
+    public void expandTo(ParamHolder params, boolean partial, StringBuilder result) {
+        if (partial) {
+            expandPartialTo(params, result);
+        } else {
+            expandTo(params, result);
+        }
+    }
+
+    /**
+     * Partially expand this template, building the compiled residual template directly from the parsed
+     * expressions of this template without parsing the result of the expansion. The residual template
+     * is not cached by the engine, since its string value depends on the values of the bound variables.
+     * @param params the custom parameter holder
+     * @return the residual template, or this template if it has no expressions
+     */
+    public CompiledURITemplate expandPartial(ParamHolder params) {
+        if (expressions.length == 0) return this;
+        ParamHolder values = constants == null ? params : layered(constants, params);
+        Residual residual = new Residual(expressions.length);
+        int count = expressions.length;
+        for (int i = 0; i < count; i++) {
+            residual.text(literals[i]);
+            expressions[i].expandPartialTo(values, residual);
+        }
+        residual.text(literals[count]);
+        String result = residual.value();
+        if (result.length() > engine.maxExpansionLength()) throw limitExceeded();
+        return residual.compile(engine, result);
+    }
+
+    private void expandPartialTo(ParamHolder params, StringBuilder result) {
+        int start = result.length();
+        ParamHolder values = constants == null ? params : layered(constants, params);
+        int count = expressions.length;
+        for (int i = 0; i < count; i++) {
+            result.append(literals[i]);
+            expressions[i].expandTo(values, true, result);
+        }
+        result.append(literals[count]);
+        if (result.length() - start > engine.maxExpansionLength()) throw limitExceeded();
+    }
+
+    /**
+     * Fully expand this template, appending the result to given string builder
+     * @param params the custom parameter holder
+     * @param result the string builder to append the result to
+     */
+    public void expandTo(ParamHolder params, StringBuilder result) {
+        try {
+            expandTo(params, (Appendable) result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // unreachable: StringBuilder does not throw
+        }
+    }
+
+    /**
+     * Fully expand this template, writing the result directly to given character sink
+     * @param params the custom parameter holder
+     * @param result the sink to write the result to
+     * @throws IOException if the sink fails
+     */
+    public void expandTo(ParamHolder params, Appendable result) throws IOException {
+        Appendable out = result;
+        if (engine.maxExpansionLength() != URITemplateEngine.UNLIMITED) {
+            out = new LimitedAppendable(result, engine.maxExpansionLength());
+        }
+        expandFully(params, out);
+    }
+
+    /**
+     * Fully expand this template, writing UTF-8 bytes of the result directly to given buffer
+     * without creating a string. Since the expanded values are percent-encoded, the result
+     * is pure ASCII unless the literal parts of the template contain non-ASCII characters.
+     * @param params the custom parameter holder
+     * @param target the buffer to write the result to
+     * @throws java.nio.BufferOverflowException if the buffer has insufficient space
+     */
+    public void expandToBytes(ParamHolder params, ByteBuffer target) {
+        try {
+            ByteSink sink = ByteSink.of(target, engine.maxExpansionLength());
+            expandFully(params, sink);
+            sink.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // unreachable: byte buffer does not throw
+        }
+    }
+
+    /**
+     * Fully expand this template, writing UTF-8 bytes of the result directly to given stream
+     * without creating a string. The stream is neither flushed nor closed.
+     * @param params the custom parameter holder
+     * @param target the stream to write the result to
+     * @throws IOException if the stream fails
+     */
+    public void expandToBytes(ParamHolder params, OutputStream target) throws IOException {
+        ByteSink sink = ByteSink.of(target, engine.maxExpansionLength());
+        expandFully(params, sink);
+        sink.flush();
+    }
+
+    /**
+     * Fully expand this template for every parameter holder, reusing single buffer for all expansions
+     * @param params the parameter holders
+     * @return the results of the expansion in the order of the holders
+     */
+    public List<String> expandAll(Iterable<? extends ParamHolder> params) {
+        List<String> result = new ArrayList<>();
+        StringBuilder buffer = new StringBuilder(capacityHint);
+        for (ParamHolder holder : params) {
+            result.add(expandWith(holder, buffer));
+        }
+        return result;
+    }
+
+    /**
+     * Fully expand this template for every parameter holder, reusing single buffer for all expansions
+     * @param params the parameter holders
+     * @return the results of the expansion in the order of the holders
+     */
+    public String[] expandAll(ParamHolder[] params) {
+        String[] result = new String[params.length];
+        expandAll(params, result, 0, params.length);
+        return result;
+    }
+
+    /**
+     * Lazily expand this template for every parameter holder of given stream. Parallel streams are expanded
+     * in parallel, and the encounter order of ordered streams is preserved. Every worker thread reuses its own buffer.
+     * @param params the stream of parameter holders
+     * @return the stream of the expansion results
+     */
+    public Stream<String> expandAll(Stream<? extends ParamHolder> params) {
+        return params.map(holder -> {
+            StringBuilder buffer = BUFFERS.get();
+            String result = expandWith(holder, buffer);
+            if (buffer.capacity() > MAX_CAPACITY_HINT) BUFFERS.remove();
+            return result;
+        });
+    }
+
+    /**
+     * Fully expand this template for every parameter holder in parallel in the common fork-join pool
+     * @param params the parameter holders
+     * @return the results of the expansion in the order of the holders
+     * @see #expandAllParallel(ParamHolder[], Executor)
+     */
+    public String[] expandAllParallel(ParamHolder[] params) {
+        return expandAllParallel(params, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Fully expand this template for every parameter holder in parallel. The holders are split into
+     * contiguous chunks, a few per available processor, and every chunk is expanded by single task
+     * with its own buffer into its own range of the result array.
+     * @param params the parameter holders
+     * @param executor the executor to run the tasks in
+     * @return the results of the expansion in the order of the holders
+     */
+    public String[] expandAllParallel(ParamHolder[] params, Executor executor) {
+        String[] result = new String[params.length];
+        int chunks = Math.min(4 * Runtime.getRuntime().availableProcessors(), (params.length + MIN_CHUNK - 1) / MIN_CHUNK);
+        if (chunks <= 1) {
+            expandAll(params, result, 0, params.length);
+            return result;
+        }
+        int threshold = engine.specializationThreshold();
+        if (threshold != URITemplateEngine.UNLIMITED && params.length >= threshold) {
+            specializedSegments(); // build it once instead of racing to do so in every task
+        }
+        CompletableFuture<?>[] tasks = new CompletableFuture<?>[chunks];
+        for (int i = 0; i < chunks; i++) {
+            int from = (int) ((long) params.length * i / chunks);
+            int to = (int) ((long) params.length * (i + 1) / chunks);
+            tasks[i] = CompletableFuture.runAsync(() -> expandAll(params, result, from, to), executor);
+        }
+        try {
+            CompletableFuture.allOf(tasks).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+        return result;
+    }
+
+    private void expandAll(ParamHolder[] params, String[] result, int from, int to) {
+        StringBuilder buffer = new StringBuilder(capacityHint);
+        for (int i = from; i < to; i++) {
+            result[i] = expandWith(params[i], buffer);
+        }
+    }
+
+    private String expandWith(ParamHolder params, StringBuilder buffer) {
+        buffer.setLength(0);
+        expandTo(params, buffer);
+        return buffer.toString();
+    }
+
+    private void expandFully(ParamHolder params, Appendable out) throws IOException {
+        URITemplateEngineListener listener = engine.listener();
+        if (listener != null) {
+            ObservedAppendable observed = new ObservedAppendable(out, listener);
+            long start = System.nanoTime();
+            expandDirectly(params, observed);
+            listener.onExpansion(this, observed.length(), observed.largestCollection(), System.nanoTime() - start);
+        } else {
+            expandDirectly(params, out);
+        }
+    }
+
+    private void expandDirectly(ParamHolder params, Appendable out) throws IOException {
+        URITemplateSpecializer.Segment[] segments = this.specialized;
+        // slot-bound values are only read by index in specialized code, so it is built right away for them
+        if (segments == null && (params instanceof SlotBinding || reachedSpecializationThreshold())) {
+            segments = specializedSegments();
+        }
+        if (segments != null) {
+            for (URITemplateSpecializer.Segment segment : segments) {
+                segment.expandTo(params, out);
+            }
+            return;
+        }
+        int count = expressions.length;
+        if (out instanceof ByteSink) {
+            ByteSink sink = (ByteSink) out;
+            byte[][] bytes = literalBytes();
+            for (int i = 0; i < count; i++) {
+                sink.write(bytes[i]);
+                expressions[i].expandTo(params, sink);
+            }
+            sink.write(bytes[count]);
+        } else {
+            for (int i = 0; i < count; i++) {
+                out.append(literals[i]);
+                expressions[i].expandTo(params, out);
+            }
+            out.append(literals[count]);
+        }
+    }
+
+    private boolean reachedSpecializationThreshold() {
+        int threshold = engine.specializationThreshold();
+        return threshold != URITemplateEngine.UNLIMITED && ++expansions == threshold;
+    }
+
+    private byte[][] literalBytes() {
+        byte[][] bytes = this.literalBytes;
+        if (bytes == null) {
+            bytes = new byte[literals.length][];
+            for (int i = 0; i < literals.length; i++) {
+                bytes[i] = literals[i].getBytes(StandardCharsets.UTF_8);
+            }
+            this.literalBytes = bytes;
+        }
+        return bytes;
+    }
+
+    private IllegalArgumentException limitExceeded() {
+        return new IllegalArgumentException("Expansion of " + value + " exceeds the limit of "
+                + engine.maxExpansionLength() + " characters");
+    }
+
+    /**
+     * Builds specialized code for full expansion of this template without waiting until
+     * it is expanded {@link URITemplateEngine#specializationThreshold()} times. Useful for templates known to be hot.
+     * @return this
+     */
+    public CompiledURITemplate specialize() {
+        specializedSegments();
+        return this;
+    }
+
+    /**
+     * @return <code>true</code> if specialized code is used for full expansion of this template
+     */
+    public boolean isSpecialized() {
+        return specialized != null;
+    }
+
+    private URITemplateSpecializer.Segment[] specializedSegments() {
+        URITemplateSpecializer.Segment[] segments = this.specialized;
+        if (segments == null) {
+            segments = URITemplateSpecializer.specialize(literals, expressions, slotNames, constants);
+            this.specialized = segments;
+        }
+        return segments;
+    }
+
+    private static String[] slotNames(URITemplateVariable[] expressions, ParamHolder constants) {
+        int capacity = 0;
+        for (URITemplateVariable expression : expressions) {
+            capacity += expression.components().size();
+        }
+        String[] names = new String[capacity];
+        int count = 0;
+        for (URITemplateVariable expression : expressions) {
+            List<URIVarComponent> components = expression.components();
+            for (int i = 0; i < components.size(); i++) {
+                String name = components.get(i).name();
+                if (constants != null && constants.containsKey(name)) continue;
+                if (indexOf(names, count, name) < 0) names[count++] = name;
+            }
+        }
+        return count == names.length ? names : Arrays.copyOf(names, count);
+    }
+
+    private static int indexOf(String[] names, int count, String name) {
+        for (int i = 0; i < count; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+
+    /**
+     * Collector of the literal segments and the residual expressions produced by partial expansion
+     */
+    private static final class Residual implements URITemplateVariable.PartialExpansion {
+
+        private final List<String> literals;
+
+        private final List<URITemplateVariable> expressions;
+
+        private final StringBuilder literal = new StringBuilder();
+
+        private final StringBuilder value = new StringBuilder();
+
+        Residual(int expressions) {
+            this.literals = new ArrayList<>(expressions + 1);
+            this.expressions = new ArrayList<>(expressions);
+        }
+
+        @Override
+        public void text(CharSequence text) {
+            literal.append(text);
+            value.append(text);
+        }
+
+        @Override
+        public void expression(URITemplateVariable expression) {
+            literals.add(literal.toString());
+            literal.setLength(0);
+            expressions.add(expression);
+            value.append(expression);
+        }
+
+        String value() {
+            return value.toString();
+        }
+
+        CompiledURITemplate compile(URITemplateEngine engine, String value) {
+            literals.add(literal.toString());
+            return new CompiledURITemplate(engine, value,
+                    literals.toArray(new String[0]),
+                    expressions.toArray(new URITemplateVariable[0]));
+        }
+    }
+
+    /**
+     * Character sink enforcing the expansion length limit of the engine
+     */
+    private final class LimitedAppendable implements Appendable {
+
+        private final Appendable target;
+
+        private int remaining;
+
+        LimitedAppendable(Appendable target, int limit) {
+            this.target = target;
+            this.remaining = limit;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            consume(end - start);
+            target.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            consume(1);
+            target.append(c);
+            return this;
+        }
+
+        private void consume(int length) {
+            remaining -= length;
+            if (remaining < 0) throw limitExceeded();
+        }
+    }
+
+}
@@ -1,14 +1,15 @@
 package com.github.hal4j.uritemplate;
 
-import java.util.Collection;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Set;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.function.IntToLongFunction;
 import java.util.stream.Stream;
 
-import static java.util.stream.Collectors.toList;
+import static com.github.hal4j.uritemplate.RFC6570Constants.DEFAULT_DELIMITER;
 
 public class ExpansionBehavior {
 
@@ -54,11 +55,31 @@ public class ExpansionBehavior {
         return new ExpansionBehavior(first, separator, named, empty, true);
     }
 
+    Character first() {
+        return first;
+    }
+
+    char separator() {
+        return separator;
+    }
+
+    boolean isNamed() {
+        return named;
+    }
+
+    Character empty() {
+        return empty;
+    }
+
+    boolean isReservedAllowed() {
+        return allowReserved;
+    }
+
     /**
      * This algorithm is based on RFC 6570 Appendix A (implementation hints) with some tweaks to handle first elements
      * in collections correctly.
      * @param varname name of the variable
-     * @param value value to substitute (can be a Collection or Map)
+     * @param value value to substitute (a scalar or a composite value, see {@link #isComposite(Object)})
      * @param explode if <code>true</code>, an explode modifier was present in the template
      * @param prefixLength if not <code>null</code>, a prefix value was specified in the template
      * @param isFirst if <code>true</code>, the varname is the first component of template variable
@@ -71,31 +92,64 @@ public class ExpansionBehavior {
                        Integer prefixLength,
                        boolean isFirst,
                        StringBuilder result) {
-        if (value instanceof Collection) {
-            Collection<Object> list = (Collection<Object>) value;
-            if (list.isEmpty()) return false;
+        try {
+            return expand(varname, value, explode, prefixLength, isFirst, (Appendable) result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // unreachable: StringBuilder does not throw
+        }
+    }
+
+    /**
+     * Same as {@link #expand(String, Object, boolean, Integer, boolean, StringBuilder)}, but writes
+     * the substitution to an arbitrary character sink.
+     * @param varname name of the variable
+     * @param value value to substitute (a scalar or a composite value, see {@link #isComposite(Object)})
+     * @param explode if <code>true</code>, an explode modifier was present in the template
+     * @param prefixLength if not <code>null</code>, a prefix value was specified in the template
+     * @param isFirst if <code>true</code>, the varname is the first component of template variable
+     * @param result the sink to which the substitution must be appended
+     * @return <code>true</code> if the sink was written to, <code>false</code> otherwise.
+     * @throws IOException if the sink fails
+     */
+    public boolean expand(String varname,
+                          Object value,
+                          boolean explode,
+                          Integer prefixLength,
+                          boolean isFirst,
+                          Appendable result) throws IOException {
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            if (map.isEmpty()) return false;
             appendPrefix(isFirst, result);
             if (explode) {
-                if (named) {
-                    appendExplodedNamed(isFirst, result, list, v -> v, v -> varname);
-                } else {
-                    String delimiter = String.valueOf(separator);
-                    appendAll(result, list, delimiter);
-                }
+                ObservedAppendable.exploded(result, map.size());
+                appendExplodedPairs(result, map);
             } else {
-                appendNonExploded(varname, result, list);
+                appendNonExplodedPairs(varname, result, map);
             }
-        } else if (value instanceof Map) {
-            Set<Map.Entry<Object, Object>> pairs = ((Map<Object, Object>) value).entrySet();
-            if (pairs.isEmpty()) return false;
+        } else if (value instanceof int[]) {
+            int[] array = (int[]) value;
+            if (array.length == 0) return false;
+            appendPrefix(isFirst, result);
+            appendNumbers(varname, result, explode, array.length, i -> array[i]);
+        } else if (value instanceof long[]) {
+            long[] array = (long[]) value;
+            if (array.length == 0) return false;
+            appendPrefix(isFirst, result);
+            appendNumbers(varname, result, explode, array.length, i -> array[i]);
+        } else if (isComposite(value)) {
+            Iterator<?> items = iterator(value);
+            if (!items.hasNext()) return false;
             appendPrefix(isFirst, result);
             if (explode) {
-                appendExplodedNamed(isFirst, result, pairs, Map.Entry::getValue, e -> e.getKey().toString());
+                int size = named ? appendExplodedNamed(varname, result, items) : appendAll(result, items, separator);
+                ObservedAppendable.exploded(result, size);
             } else {
-                appendNonExploded(varname, result, pairs.stream()
-                        .filter(e -> e.getValue() != null)
-                        .flatMap(e -> Stream.of(e.getKey(), e.getValue()))
-                        .collect(toList()));
+                if (named) {
+                    PercentEncoder.LITERAL.encodeTo(varname, 0, varname.length(), result);
+                    result.append('=');
+                }
+                appendAll(result, items, DEFAULT_DELIMITER);
             }
         } else {
             appendPrefix(isFirst, result);
@@ -108,16 +162,38 @@ public class ExpansionBehavior {
                     result.append('=');
                 }
             }
-            if (prefixLength != null) {
-                result.append(encodeValue(substring(s, prefixLength)));
-            } else {
-                result.append(encodeValue(s));
-            }
+            int end = prefixLength != null ? Math.min(s.length(), prefixLength) : s.length();
+            ObservedAppendable.encode(encoder(), s, 0, end, result);
         }
         return true;
     }
 
-    private void appendPrefix(boolean isFirst, StringBuilder result) {
+    /**
+     * Checks if given value is expanded as a list or as associative array. Besides collections and maps,
+     * these are any iterables, iterators, streams, object arrays, <code>int[]</code> and <code>long[]</code>:
+     * they are consumed element by element while expanding, so iterators and streams can be expanded only once.
+     * Paths are iterable over their names, but expanded as their string form.
+     * @param value the value to check
+     * @return <code>true</code> if the value is composite
+     */
+    static boolean isComposite(Object value) {
+        return value instanceof Map
+                || (value instanceof Iterable && !(value instanceof Path))
+                || value instanceof Iterator
+                || value instanceof Stream
+                || value instanceof Object[]
+                || value instanceof int[]
+                || value instanceof long[];
+    }
+
+    private static Iterator<?> iterator(Object value) {
+        if (value instanceof Iterable) return ((Iterable<?>) value).iterator();
+        if (value instanceof Iterator) return (Iterator<?>) value;
+        if (value instanceof Stream) return ((Stream<?>) value).iterator();
+        return Arrays.asList((Object[]) value).iterator();
+    }
+
+    private void appendPrefix(boolean isFirst, Appendable result) throws IOException {
         if (isFirst) {
             if (first != null) result.append(first);
         } else {
@@ -125,57 +201,122 @@ public class ExpansionBehavior {
         }
     }
 
-    private <T> void appendExplodedNamed(boolean isFirst,
-                                         StringBuilder result,
-                                         Iterable<T> iterable,
-                                         Function<T, Object> getValue,
-                                         Function<T, String> getKey) {
+    /**
+     * @return the number of the items, including the undefined ones
+     */
+    private int appendExplodedNamed(String varname, Appendable result, Iterator<?> items) throws IOException {
+        int size = 0;
         boolean currentFirst = true;
-        for (T entry : iterable) {
-            Object entryValue = getValue.apply(entry);
+        while (items.hasNext()) {
+            Object item = items.next();
+            size++;
+            if (item == null) continue;
+            if (!currentFirst) result.append(separator);
+            currentFirst = false;
+            appendPair(result, varname, item.toString());
+        }
+        return size;
+    }
+
+    private void appendExplodedPairs(Appendable result, Map<?, ?> map) throws IOException {
+        boolean currentFirst = true;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            Object entryValue = entry.getValue();
             if (entryValue == null) continue;
-            String s = entryValue.toString();
-            String name = getKey.apply(entry);
             if (!currentFirst) result.append(separator);
             currentFirst = false;
-            result.append(named ? name : encodeValue(name));
-            if (s.isEmpty() && named) {
-                result.append(empty);
-            } else {
-                result.append('=').append(encodeValue(s));
-            }
+            appendPair(result, entry.getKey().toString(), entryValue.toString());
+        }
+    }
+
+    private void appendPair(Appendable result, String name, String s) throws IOException {
+        if (named) {
+            result.append(name);
+        } else {
+            encodeValueTo(name, result);
+        }
+        if (s.isEmpty() && named) {
+            if (empty != null) result.append(empty);
+        } else {
+            result.append('=');
+            encodeValueTo(s, result);
         }
     }
 
-    private void appendNonExploded(String varname, StringBuilder result, Collection<? extends Object> list) {
+    private void appendNonExplodedPairs(String varname, Appendable result, Map<?, ?> map) throws IOException {
+        Iterator<? extends Map.Entry<?, ?>> entries = map.entrySet().iterator();
+        Map.Entry<?, ?> entry = nextDefined(entries);
         if (named) {
-            result.append(encodeVarname(varname));
-            if (list.isEmpty()) {
+            PercentEncoder.LITERAL.encodeTo(varname, 0, varname.length(), result);
+            if (entry == null) {
                 if (empty != null) result.append(empty);
                 return;
             }
             result.append('=');
         }
-        appendAll(result, list, ",");
+        boolean currentFirst = true;
+        for (; entry != null; entry = nextDefined(entries)) {
+            if (!currentFirst) result.append(DEFAULT_DELIMITER);
+            currentFirst = false;
+            encodeValueTo(String.valueOf(entry.getKey()), result);
+            result.append(DEFAULT_DELIMITER);
+            encodeValueTo(entry.getValue().toString(), result);
+        }
     }
 
-    private void appendAll(StringBuilder result, Collection<? extends Object> list, String delimiter) {
-        result.append(list.stream()
-                .filter(Objects::nonNull)
-                .map(Object::toString)
-                .map(this::encodeValue)
-                .collect(Collectors.joining(delimiter)));
+    private static Map.Entry<?, ?> nextDefined(Iterator<? extends Map.Entry<?, ?>> entries) {
+        while (entries.hasNext()) {
+            Map.Entry<?, ?> entry = entries.next();
+            if (entry.getValue() != null) return entry;
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of the items, including the undefined ones
+     */
+    private int appendAll(Appendable result, Iterator<?> items, char delimiter) throws IOException {
+        int size = 0;
+        boolean currentFirst = true;
+        while (items.hasNext()) {
+            Object item = items.next();
+            size++;
+            if (item == null) continue;
+            if (!currentFirst) result.append(delimiter);
+            currentFirst = false;
+            encodeValueTo(item.toString(), result);
+        }
+        return size;
     }
 
-    private String encodeValue(String s) {
-        return allowReserved ? PercentEncoder.LITERAL.encode(s) : PercentEncoder.DEFAULT.encode(s);
+    /**
+     * Appends elements of a primitive array without boxing: decimal numbers never need encoding
+     */
+    private void appendNumbers(String varname, Appendable result, boolean explode, int size,
+                               IntToLongFunction element) throws IOException {
+        char delimiter = explode ? separator : DEFAULT_DELIMITER;
+        if (!explode && named) {
+            PercentEncoder.LITERAL.encodeTo(varname, 0, varname.length(), result);
+            result.append('=');
+        }
+        for (int i = 0; i < size; i++) {
+            if (i > 0) result.append(delimiter);
+            if (explode && named) result.append(varname).append('=');
+            long number = element.applyAsLong(i);
+            if (result instanceof StringBuilder) {
+                ((StringBuilder) result).append(number);
+            } else {
+                result.append(Long.toString(number));
+            }
+        }
+        if (explode) ObservedAppendable.exploded(result, size);
     }
 
-    private String encodeVarname(String s) {
-        return PercentEncoder.LITERAL.encode(s);
+    private PercentEncoder encoder() {
+        return allowReserved ? PercentEncoder.LITERAL : PercentEncoder.DEFAULT;
     }
 
-    private String substring(String s, int prefix) {
-        return s.length() <= prefix ? s : s.substring(0, prefix);
+    private void encodeValueTo(String s, Appendable result) throws IOException {
+        ObservedAppendable.encode(encoder(), s, 0, s.length(), result);
     }
 }
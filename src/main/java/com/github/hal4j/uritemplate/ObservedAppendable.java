@@ -0,0 +1,97 @@
+package com.github.hal4j.uritemplate;
+
+import java.io.IOException;
+
+/**
+ * Character sink counting the characters of an expansion and reporting encoded values to the listener
+ * of the engine. Only used by engines with a listener, so that expansion without instrumentation
+ * does not wrap its output. Expansion code reports through the static methods of this class,
+ * which do nothing for other sinks.
+ */
+final class ObservedAppendable implements Appendable {
+
+    private final Appendable target;
+
+    private final URITemplateEngineListener listener;
+
+    private long length;
+
+    private int largestCollection;
+
+    ObservedAppendable(Appendable target, URITemplateEngineListener listener) {
+        this.target = target;
+        this.listener = listener;
+    }
+
+    /**
+     * Percent-encodes a value to given sink, reporting to the listener whether the value needed encoding
+     * if the sink is observed
+     * @param encoder the encoder of the value
+     * @param s the value
+     * @param from the index of the first character to encode
+     * @param to the index after the last character to encode
+     * @param result the sink to append encoded characters to
+     * @throws IOException if the sink fails
+     */
+    static void encode(PercentEncoder encoder, CharSequence s, int from, int to, Appendable result) throws IOException {
+        if (result instanceof ObservedAppendable) {
+            ((ObservedAppendable) result).encode(encoder, s, from, to);
+        } else {
+            encoder.encodeTo(s, from, to, result);
+        }
+    }
+
+    /**
+     * Reports expansion of an exploded list or map if given sink is observed
+     * @param result the sink
+     * @param size the number of elements
+     */
+    static void exploded(Appendable result, int size) {
+        if (result instanceof ObservedAppendable) {
+            ObservedAppendable observed = (ObservedAppendable) result;
+            if (size > observed.largestCollection) observed.largestCollection = size;
+        }
+    }
+
+    private void encode(PercentEncoder encoder, CharSequence s, int from, int to) throws IOException {
+        // the safe run is copied here, so that the encoder does not scan it again
+        int unsafe = encoder.firstUnsafe(s, from, to);
+        listener.onEncode(unsafe == to);
+        append(s, from, unsafe);
+        if (unsafe < to) encoder.encodeTo(s, unsafe, to, this);
+    }
+
+    /**
+     * @return the size of the largest exploded list or map so far
+     */
+    int largestCollection() {
+        return largestCollection;
+    }
+
+    /**
+     * @return the number of characters appended so far
+     */
+    long length() {
+        return length;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+        length += end - start;
+        target.append(csq, start, end);
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+        length++;
+        target.append(c);
+        return this;
+    }
+
+}
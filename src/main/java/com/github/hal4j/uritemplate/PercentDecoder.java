@@ -0,0 +1,174 @@
+package com.github.hal4j.uritemplate;
+
+import java.util.Arrays;
+
+/**
+ * Decoder of percent-encoded UTF-8 strings, the counterpart of {@link PercentEncoder}.
+ * <p>
+ * Characters other than percent-encoded triplets are copied as is: in particular, <code>+</code> is not
+ * decoded as space, since this is the convention of HTML forms and not of URIs. Malformed triplets
+ * (<code>%</code> not followed by two hexadecimal digits) are kept as is, and encoded bytes that do not form
+ * valid UTF-8 sequences are decoded as replacement character U+FFFD, so decoding never fails.
+ * Use {@link #firstMalformed(CharSequence, int, int)} to reject malformed input instead.
+ * </p>
+ */
+public final class PercentDecoder {
+
+    private static final char REPLACEMENT = '\uFFFD';
+
+    /**
+     * Values of hexadecimal digits by ASCII character, -1 for other characters
+     */
+    private static final byte[] HEX_VALUES = new byte[0x80];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private PercentDecoder() {
+    }
+
+    /**
+     * Decodes given string
+     * @param s the string to decode
+     * @return decoded string or the same instance, if it does not contain percent-encoded characters
+     */
+    public static String decode(String s) {
+        int length = s.length();
+        int i = s.indexOf('%');
+        if (i < 0) return s;
+        StringBuilder result = new StringBuilder(length);
+        result.append(s, 0, i);
+        decodeTo(s, i, length, result);
+        return result.toString();
+    }
+
+    /**
+     * Decodes given range of characters
+     * @param s the characters to decode
+     * @param from the index of the first character
+     * @param to the index after the last character
+     * @return decoded string
+     */
+    public static String decode(CharSequence s, int from, int to) {
+        int i = from;
+        while (i < to && s.charAt(i) != '%') i++;
+        if (i == to) return s.subSequence(from, to).toString();
+        StringBuilder result = new StringBuilder(to - from);
+        result.append(s, from, i);
+        decodeTo(s, i, to, result);
+        return result.toString();
+    }
+
+    /**
+     * Decodes given range of characters and appends the result to given string builder.
+     * Runs of characters without percent-encoding are copied in bulk, encoded UTF-8 sequences are
+     * decoded directly into the string builder without intermediate objects.
+     * @param s the characters to decode
+     * @param from the index of the first character to decode
+     * @param to the index after the last character to decode
+     * @param result the string builder to append decoded characters to
+     */
+    public static void decodeTo(CharSequence s, int from, int to, StringBuilder result) {
+        int i = from;
+        while (i < to) {
+            int start = i;
+            while (i < to && s.charAt(i) != '%') i++;
+            if (i > start) result.append(s, start, i);
+            if (i == to) return;
+            int b = byteAt(s, i, to);
+            if (b < 0) {
+                result.append('%');
+                i++;
+            } else {
+                i = decodeSequence(s, i + 3, to, b, result);
+            }
+        }
+    }
+
+    /**
+     * Returns the index of the first malformed percent-encoded triplet in given range
+     * @param s the characters to check
+     * @param from the index of the first character to check
+     * @param to the index after the last character to check
+     * @return the index of the <code>%</code> character not followed by two hexadecimal digits
+     *         or <code>to</code> if all triplets are well-formed
+     */
+    public static int firstMalformed(CharSequence s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == '%') {
+                if (byteAt(s, i, to) < 0) return i;
+                i += 2;
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Decodes UTF-8 sequence starting with given byte, reading the continuation bytes from the following triplets
+     * @return the index after the last triplet of the sequence
+     */
+    private static int decodeSequence(CharSequence s, int i, int to, int lead, StringBuilder result) {
+        int count;
+        int cp;
+        int min;
+        if (lead < 0x80) {
+            result.append((char) lead);
+            return i;
+        } else if (lead >= 0xC2 && lead < 0xE0) {
+            count = 1;
+            cp = lead & 0x1F;
+            min = 0x80;
+        } else if (lead >= 0xE0 && lead < 0xF0) {
+            count = 2;
+            cp = lead & 0x0F;
+            min = 0x800;
+        } else if (lead >= 0xF0 && lead < 0xF5) {
+            count = 3;
+            cp = lead & 0x07;
+            min = 0x10000;
+        } else {
+            result.append(REPLACEMENT);
+            return i;
+        }
+        for (int k = 0; k < count; k++) {
+            int b = i < to && s.charAt(i) == '%' ? byteAt(s, i, to) : -1;
+            if ((b & 0xC0) != 0x80) {
+                // truncated sequence: the next triplet, if any, starts a new one
+                result.append(REPLACEMENT);
+                return i;
+            }
+            cp = (cp << 6) | (b & 0x3F);
+            i += 3;
+        }
+        if (cp < min || cp > Character.MAX_CODE_POINT || (cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE)) {
+            result.append(REPLACEMENT);
+        } else if (cp < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+            result.append((char) cp);
+        } else {
+            result.append(Character.highSurrogate(cp)).append(Character.lowSurrogate(cp));
+        }
+        return i;
+    }
+
+    /**
+     * @return the value of the triplet at given index or -1 if it is malformed
+     */
+    static int byteAt(CharSequence s, int i, int to) {
+        if (i + 2 >= to) return -1;
+        char high = s.charAt(i + 1);
+        char low = s.charAt(i + 2);
+        if ((high | low) >= 0x80) return -1;
+        int h = HEX_VALUES[high];
+        int l = HEX_VALUES[low];
+        return (h | l) < 0 ? -1 : (h << 4) | l;
+    }
+
+}
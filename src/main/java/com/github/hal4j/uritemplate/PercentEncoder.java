@@ -1,9 +1,22 @@
 package com.github.hal4j.uritemplate;
 
-import static java.lang.Character.toChars;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 public class PercentEncoder {
     private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Percent-encoded form of every byte value
+     */
+    private static final String[] TRIPLETS = new String[256];
+
+    static {
+        for (int b = 0; b < 256; b++) {
+            TRIPLETS[b] = new String(new char[] {'%', HEX[b >>> 4], HEX[b & 0xF]});
+        }
+    }
+
     /**
      * Unreserved characters according to RFC 3986 section 2.3
      */
@@ -19,81 +32,165 @@ public class PercentEncoder {
     /**
      * Encoder of literals according to RFC 6570 section 3.1
      */
-    public static PercentEncoder LITERAL = new PercentEncoder(RESERVED + UNRESERVED);
+    public static final PercentEncoder LITERAL = new PercentEncoder(RESERVED + UNRESERVED);
 
-    public static PercentEncoder DEFAULT = new PercentEncoder(UNRESERVED);
+    public static final PercentEncoder DEFAULT = new PercentEncoder(UNRESERVED);
 
-    private final boolean[] reserved;
+    /**
+     * Encoder of a single path segment: <code>pchar</code> according to RFC 3986 section 3.3
+     */
+    public static final PercentEncoder PATH_SEGMENT = new PercentEncoder(UNRESERVED + SUB_DELIMS + ":@");
+
+    /**
+     * Encoder of a path, keeping the segment delimiters
+     */
+    public static final PercentEncoder PATH = new PercentEncoder(UNRESERVED + SUB_DELIMS + ":@/");
+
+    /**
+     * Encoder of a whole query according to RFC 3986 section 3.4, keeping the parameter delimiters
+     */
+    public static final PercentEncoder QUERY = new PercentEncoder(UNRESERVED + SUB_DELIMS + ":@/?");
+
+    /**
+     * Encoder of a name or a value of a query parameter: same as {@link #QUERY}, but also encoding
+     * <code>&amp;</code>, <code>=</code> and <code>+</code> that have special meaning in form-style queries
+     */
+    public static final PercentEncoder QUERY_PARAM = new PercentEncoder(UNRESERVED + "!$'()*,;:@/?");
+
+    /**
+     * Encoder of a fragment according to RFC 3986 section 3.5
+     */
+    public static final PercentEncoder FRAGMENT = new PercentEncoder(UNRESERVED + SUB_DELIMS + ":@/?");
+
+    /**
+     * Encoder of user information according to RFC 3986 section 3.2.1
+     */
+    public static final PercentEncoder USERINFO = new PercentEncoder(UNRESERVED + SUB_DELIMS + ":");
+
+    /**
+     * Encoder of a registered host name according to RFC 3986 section 3.2.2
+     */
+    public static final PercentEncoder REG_NAME = new PercentEncoder(UNRESERVED + SUB_DELIMS);
+
+    /**
+     * Table of allowed ASCII characters
+     */
+    private final boolean[] allowed = new boolean[0x80];
 
     private PercentEncoder(String allowed) {
-        int max = 0;
         for (int i = 0; i < allowed.length(); i++) {
             char c = allowed.charAt(i);
-            if (max < c) max = c;
-        }
-        reserved = new boolean[max + 1];
-        for (int i = 0; i < allowed.length(); i++) {
-            char c = allowed.charAt(i);
-            reserved[c] = true;
+            if (c >= 0x80) {
+                throw new IllegalArgumentException("Only ASCII characters can be allowed: " + c);
+            }
+            this.allowed[c] = true;
         }
     }
 
     public String encode(String s) {
-        // scan the string to check if encoding is really necessary: if not, just return the original string,
-        // saving the time on code point processing
-        for (int i = 0; i < s.length(); i++) {
-            char c = s.charAt(i);
-            if (c >= reserved.length || !reserved[c]) return encodeStartingFrom(s, i);
+        // scan the string to check if encoding is really necessary: if not, just return the original string
+        int length = s.length();
+        int i = firstUnsafe(s, 0, length);
+        if (i == length) return s;
+        StringBuilder sb = new StringBuilder(length + 16);
+        sb.append(s, 0, i);
+        encodeTo(s, i, length, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Encodes given range of characters and appends the result to given string builder.
+     * Runs of characters that do not need encoding are copied in bulk, the others are written
+     * as percent-encoded UTF-8 bytes without intermediate objects.
+     * @param s the characters to encode
+     * @param from the index of the first character to encode
+     * @param to the index after the last character to encode
+     * @param result the string builder to append encoded characters to
+     */
+    public void encodeTo(CharSequence s, int from, int to, StringBuilder result) {
+        try {
+            encodeTo(s, from, to, (Appendable) result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // unreachable: StringBuilder does not throw
         }
-        return s;
     }
 
-    private String encodeStartingFrom(String s, int index) {
-        StringBuilder sb = new StringBuilder();
-        s.codePoints().mapToObj(this::encode).forEach(sb::append);
-        return sb.toString();
+    /**
+     * Encodes given range of characters and appends the result to given character sink.
+     * @param s the characters to encode
+     * @param from the index of the first character to encode
+     * @param to the index after the last character to encode
+     * @param result the sink to append encoded characters to
+     * @throws IOException if the sink fails
+     * @see #encodeTo(CharSequence, int, int, StringBuilder)
+     */
+    public void encodeTo(CharSequence s, int from, int to, Appendable result) throws IOException {
+        int i = from;
+        while (i < to) {
+            int unsafe = firstUnsafe(s, i, to);
+            if (unsafe > i) {
+                result.append(s, i, unsafe);
+            }
+            if (unsafe == to) return;
+            char c = s.charAt(unsafe);
+            i = unsafe + 1;
+            if (c < 0x80) {
+                appendByte(c, result);
+            } else if (c < 0x800) {
+                appendByte(0xC0 | (c >>> 6), result);
+                appendByte(0x80 | (c & 0x3F), result);
+            } else if (Character.isHighSurrogate(c) && i < to && Character.isLowSurrogate(s.charAt(i))) {
+                int cp = Character.toCodePoint(c, s.charAt(i++));
+                appendByte(0xF0 | (cp >>> 18), result);
+                appendByte(0x80 | ((cp >>> 12) & 0x3F), result);
+                appendByte(0x80 | ((cp >>> 6) & 0x3F), result);
+                appendByte(0x80 | (cp & 0x3F), result);
+            } else { // includes unpaired surrogates
+                appendByte(0xE0 | (c >>> 12), result);
+                appendByte(0x80 | ((c >>> 6) & 0x3F), result);
+                appendByte(0x80 | (c & 0x3F), result);
+            }
+        }
     }
 
-    private char[] encode(int cp) {
-        if ((cp < reserved.length) && reserved[cp]) return toChars(cp);
-        char[] buf;
-        if (cp <= 0x7F) {  // 1 byte UTF-8 characters
-            buf = new char[3];
-            buf[0] = '%';
-            buf[2] = HEX[cp & 0xF];
-            buf[1] = HEX[cp >>> 4];
-        } else if (cp <= 0x7ff) { // 2 byte UTF-8 characters
-            buf = new char[6];
-            buf[3] = '%'; buf[5] = HEX[cp & 0xF]; cp >>>= 4; buf[4] = HEX[0x8 | (cp & 0x3)];
-
-            cp >>>= 2;
-            buf[0] = '%'; buf[2] = HEX[cp & 0xF]; cp >>>= 4; buf[1] = HEX[0xC | cp];
-        } else if (cp <= 0xffff) { // 3 byte UTF-8 characters
-            buf = new char[9];
-            buf[6] = '%'; buf[8] = HEX[cp & 0xF]; cp >>>= 4; buf[7] = HEX[0x8 | (cp & 0x3)];
-
-            cp >>>= 2;
-            buf[3] = '%'; buf[5] = HEX[cp & 0xF]; cp >>>= 4; buf[4] = HEX[0x8 | (cp & 0x3)];
-
-            cp >>>= 2;
-            buf[0] = '%'; buf[1] = 'E'; buf[2] = HEX[cp];
-        } else if (cp <= 0x10ffff) { // 4 byte UTF-8 characters
-            buf = new char[12];
-            buf[9] = '%'; buf[11] = HEX[cp & 0xF]; cp >>>= 4; buf[10] = HEX[0x8 | (cp & 0x3)];
-
-            cp >>>= 2;
-            buf[6] = '%'; buf[8] = HEX[cp & 0xF]; cp >>>= 4; buf[7] = HEX[0x8 | (cp & 0x3)];
-
-            cp >>>= 2;
-            buf[3] = '%'; buf[5] = HEX[cp & 0xF]; cp >>>= 4; buf[4] = HEX[0x8 | (cp & 0x3)];
-
-            cp >>>= 2;
-            buf[0] = '%'; buf[1] = 'F'; buf[2] = HEX[cp & 0x7];
-        } else {
-            // should be unreachable unless there's a bug in standard library
-            throw new UnsupportedOperationException("Cannot encode code point " + cp);
+    /**
+     * Returns the index of the first character in given range that must be encoded
+     * @param s the characters to check
+     * @param from the index of the first character to check
+     * @param to the index after the last character to check
+     * @return the index of the first character to encode or <code>to</code> if no encoding is necessary
+     */
+    public int firstUnsafe(CharSequence s, int from, int to) {
+        boolean[] table = this.allowed;
+        int i = from;
+        // classify 4 characters per step: one test for non-ASCII characters in the whole group,
+        // then four table lookups combined without branches
+        for (int limit = to - 3; i < limit; i += 4) {
+            char c0 = s.charAt(i);
+            char c1 = s.charAt(i + 1);
+            char c2 = s.charAt(i + 2);
+            char c3 = s.charAt(i + 3);
+            if (((c0 | c1 | c2 | c3) & 0xFF80) != 0) break;
+            if (!(table[c0] & table[c1] & table[c2] & table[c3])) break;
+        }
+        for (; i < to; i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80 || !table[c]) return i;
         }
-        return buf;
+        return to;
+    }
+
+    /**
+     * Checks if given character can be written without encoding
+     * @param c the character to check
+     * @return <code>true</code> if the character is allowed in the output as is
+     */
+    public boolean isAllowed(char c) {
+        return c < 0x80 && allowed[c];
+    }
+
+    private static void appendByte(int b, Appendable result) throws IOException {
+        result.append(TRIPLETS[b]);
     }
 
 }
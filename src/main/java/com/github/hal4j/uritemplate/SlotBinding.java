@@ -0,0 +1,20 @@
+package com.github.hal4j.uritemplate;
+
+/**
+ * Parameter holder providing values by the variable slots of a compiled template
+ * (see {@link CompiledURITemplate#slotNames()}). This is an abstract class rather than an interface,
+ * so that public holders keep the slot accessor package-private.
+ */
+abstract class SlotBinding implements ParamHolder {
+
+    /**
+     * Returns value of the variable in given slot of the template expanded by its name.
+     * Template code passes the same name instance as the one stored in the slot table of the template,
+     * so identity check is enough to verify that the holder was bound to this template.
+     * @param slot the slot index
+     * @param name the variable name
+     * @return the value or <code>null</code> if the variable is undefined
+     */
+    abstract Object get(int slot, String name);
+
+}
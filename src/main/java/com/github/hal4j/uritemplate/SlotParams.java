@@ -0,0 +1,51 @@
+package com.github.hal4j.uritemplate;
+
+/**
+ * Parameter values bound to the variable slots of a compiled template
+ * (see {@link CompiledURITemplate#bind(Object...)}). Value <code>i</code> is the value of the variable
+ * named {@link CompiledURITemplate#slotNames()}<code>.get(i)</code>, <code>null</code> value means undefined variable.
+ * <p>
+ * Full expansion of the template the values were bound to reads them by slot index, without hashing
+ * or comparing variable names. Instances do not copy the array and do not change their state during expansion,
+ * so a holder may be reused, but the array must not be modified while it is being expanded.
+ * </p>
+ */
+public final class SlotParams extends SlotBinding {
+
+    private final String[] names;
+
+    private final Object[] values;
+
+    SlotParams(String[] names, Object[] values) {
+        this.names = names;
+        this.values = values;
+    }
+
+    @Override
+    Object get(int slot, String name) {
+        if (slot < names.length && names[slot] == name) {
+            return values[slot];
+        }
+        return get(name);
+    }
+
+    @Override
+    public boolean containsKey(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    @Override
+    public Object get(String name) {
+        int slot = indexOf(name);
+        return slot < 0 ? null : values[slot];
+    }
+
+    private int indexOf(String name) {
+        // templates rarely have more than a few variables, so linear scan is faster than hashing
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,268 @@
+package com.github.hal4j.uritemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Binary snapshot of named compiled templates, loaded without parsing the template strings.
+ * <p>
+ * Layout (big-endian): magic, format version, the pool of distinct strings (names, template strings, literals
+ * and variable names, each as length and UTF-8 bytes), the pool of distinct expressions, then the templates.
+ * Every expression is stored as operator code, number of components, and for every component the pool index
+ * of the variable name, the prefix length (0 if none) and the explode flag. Every template is stored as the pool
+ * indexes of its name, string, literal segments and expressions. Since expressions are immutable, templates
+ * read from the same snapshot share the instances of equal expressions, e.g. <code>{/id}</code>.
+ * </p>
+ * <p>
+ * Snapshots are read from a memory-mapped file with light validation only: bounds of counts and indexes,
+ * operator codes, prefix lengths and each variable name once. Literals are not checked for characters
+ * that the parser would reject, since snapshots are expected to be written by {@link #write(Map, Path)}.
+ * </p>
+ */
+final class TemplateSnapshot {
+
+    private static final int MAGIC = 0x55544D53; // "UTMS"
+
+    /**
+     * Format version, also covering the order of operator codes
+     */
+    private static final short VERSION = 1;
+
+    private static final URITemplateOperator[] OPERATORS = URITemplateOperator.values();
+
+    private TemplateSnapshot() {
+    }
+
+    /**
+     * Writes snapshot of given templates, replacing the file if it exists
+     * @param templates the templates by name
+     * @param file the file to write to
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Map<String, CompiledURITemplate> templates, Path file) throws IOException {
+        StringPool pool = new StringPool();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        Map<URITemplateVariable, Integer> expressionIndexes = new HashMap<>();
+        List<URITemplateVariable> expressionPool = new ArrayList<>();
+        body.writeInt(templates.size());
+        for (Map.Entry<String, CompiledURITemplate> entry : templates.entrySet()) {
+            CompiledURITemplate template = entry.getValue();
+            body.writeInt(pool.index(entry.getKey()));
+            body.writeInt(pool.index(template.value()));
+            URITemplateVariable[] expressions = template.expressions();
+            body.writeInt(expressions.length);
+            for (String literal : template.literals()) {
+                body.writeInt(pool.index(literal));
+            }
+            for (URITemplateVariable expression : expressions) {
+                Integer index = expressionIndexes.get(expression);
+                if (index == null) {
+                    index = expressionPool.size();
+                    expressionIndexes.put(expression, index);
+                    expressionPool.add(expression);
+                    for (URIVarComponent component : expression.components()) {
+                        pool.index(component.name());
+                    }
+                }
+                body.writeInt(index);
+            }
+        }
+        body.flush();
+        try (OutputStream stream = Files.newOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(pool.strings.size());
+            for (String s : pool.strings) {
+                byte[] encoded = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+            out.writeInt(expressionPool.size());
+            for (URITemplateVariable expression : expressionPool) {
+                out.writeByte(expression.modifier().orElse(URITemplateOperator.NONE).ordinal());
+                List<URIVarComponent> components = expression.components();
+                out.writeInt(components.size());
+                for (URIVarComponent component : components) {
+                    out.writeInt(pool.index(component.name()));
+                    out.writeShort(component.prefixLength().orElse(0));
+                    out.writeByte(component.explode() ? 1 : 0);
+                }
+            }
+            bytes.writeTo(out);
+        }
+    }
+
+    /**
+     * Reads templates from a memory-mapped snapshot
+     * @param file the snapshot file
+     * @param engine the engine to bind the templates to
+     * @param consumer the consumer of the templates and their names in the order of the snapshot
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    static void read(Path file, URITemplateEngine engine, BiConsumer<String, CompiledURITemplate> consumer)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Template snapshot is too large: " + file);
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            try {
+                new Reader(buffer, engine).read(consumer);
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated template snapshot " + file, e);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed template snapshot " + file + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private static final class StringPool {
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        private final List<String> strings = new ArrayList<>();
+
+        int index(String s) {
+            Integer index = indexes.get(s);
+            if (index == null) {
+                index = strings.size();
+                indexes.put(s, index);
+                strings.add(s);
+            }
+            return index;
+        }
+    }
+
+    private static final class Reader {
+
+        private final ByteBuffer buffer;
+
+        private final URITemplateEngine engine;
+
+        private String[] strings;
+
+        private URITemplateVariable[] expressions;
+
+        // 0 if not checked yet, 1 if the string is a valid variable name, -1 otherwise
+        private byte[] names;
+
+        Reader(ByteBuffer buffer, URITemplateEngine engine) {
+            this.buffer = buffer;
+            this.engine = engine;
+        }
+
+        void read(BiConsumer<String, CompiledURITemplate> consumer) {
+            check(buffer.getInt() == MAGIC, "not a template snapshot");
+            short version = buffer.getShort();
+            check(version == VERSION, "unsupported version " + version);
+            readStrings();
+            readExpressions();
+            int count = count(4 * 3);
+            for (int t = 0; t < count; t++) {
+                String name = string();
+                String value = string();
+                int expressionCount = count(4 * 2);
+                String[] literals = new String[expressionCount + 1];
+                for (int i = 0; i < literals.length; i++) {
+                    literals[i] = string();
+                }
+                URITemplateVariable[] expressions = new URITemplateVariable[expressionCount];
+                for (int i = 0; i < expressionCount; i++) {
+                    int index = buffer.getInt();
+                    check(index >= 0 && index < this.expressions.length, "expression index out of bounds: " + index);
+                    expressions[i] = this.expressions[index];
+                }
+                consumer.accept(name, new CompiledURITemplate(engine, value, literals, expressions));
+            }
+            check(!buffer.hasRemaining(), "unexpected data after the last template");
+        }
+
+        private void readStrings() {
+            int count = count(4);
+            strings = new String[count];
+            names = new byte[count];
+            byte[] scratch = new byte[256];
+            for (int i = 0; i < count; i++) {
+                int length = count(1);
+                if (length > scratch.length) scratch = new byte[Math.max(length, scratch.length * 2)];
+                buffer.get(scratch, 0, length);
+                strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+        }
+
+        private void readExpressions() {
+            int count = count(1 + 4);
+            expressions = new URITemplateVariable[count];
+            for (int i = 0; i < count; i++) {
+                expressions[i] = expression();
+            }
+        }
+
+        private URITemplateVariable expression() {
+            int code = buffer.get() & 0xFF;
+            check(code < OPERATORS.length, "unknown operator code " + code);
+            int componentCount = count(4 + 2 + 1);
+            check(componentCount > 0, "expression without components");
+            URIVarComponent[] components = new URIVarComponent[componentCount];
+            for (int i = 0; i < componentCount; i++) {
+                String name = variableName();
+                short prefixLength = buffer.getShort();
+                check(prefixLength >= 0 && prefixLength <= URIVarComponent.MAX_PREFIX_LENGTH,
+                        "invalid prefix length " + prefixLength);
+                boolean explode = buffer.get() != 0;
+                components[i] = URIVarComponent.trusted(name, prefixLength == 0 ? null : (int) prefixLength, explode);
+            }
+            return URITemplateVariable.template(OPERATORS[code], components);
+        }
+
+        private String variableName() {
+            int index = index();
+            if (names[index] == 0) {
+                String name = strings[index];
+                names[index] = (byte) (URIVarComponent.isValidName(name, 0, name.length()) ? 1 : -1);
+            }
+            check(names[index] > 0, "invalid variable name " + strings[index]);
+            return strings[index];
+        }
+
+        private String string() {
+            return strings[index()];
+        }
+
+        private int index() {
+            int index = buffer.getInt();
+            check(index >= 0 && index < strings.length, "string index out of bounds: " + index);
+            return index;
+        }
+
+        /**
+         * Reads the number of following items, checking that the remaining data is enough to hold them
+         */
+        private int count(int minItemSize) {
+            int count = buffer.getInt();
+            check(count >= 0 && count <= buffer.remaining() / minItemSize, "invalid count " + count);
+            return count;
+        }
+
+        private static void check(boolean condition, String message) {
+            if (!condition) throw new IllegalArgumentException(message);
+        }
+    }
+
+}
@@ -1,12 +1,11 @@
 package com.github.hal4j.uritemplate;
 
-import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.URLEncoder;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 import static java.util.Arrays.stream;
 import static java.util.stream.Collectors.joining;
@@ -194,7 +193,7 @@ public class URIBuilder {
         return new URIPartBuilder(() -> this.schemeSpecificPart, (String value) -> this.schemeSpecificPart = value,
                 null, null,
                 object -> append(this.appendedSsp, object, value -> this.appendedSsp = value),
-                () -> this.appendedSsp);
+                () -> this.appendedSsp, PercentEncoder.LITERAL::encode);
     }
 
     /**
@@ -253,7 +252,7 @@ public class URIBuilder {
         return new URIPartBuilder(() -> this.host, (String value) -> this.host = value,
                 '.', null,
                 object -> append(this.appendedHost, object, value -> this.appendedHost = value),
-                () -> this.appendedHost);
+                () -> this.appendedHost, hostEncoder(this.host));
     }
 
 
@@ -301,7 +300,7 @@ public class URIBuilder {
         return new URIPartBuilder(() -> this.path, value -> this.path = value,
                 '/', this.path == null || this.path.isEmpty() ? '/' : null,
                 object -> append(this.appendedPath, object, value -> this.appendedPath = value),
-                () -> this.appendedPath);
+                () -> this.appendedPath, PercentEncoder.PATH::encode);
     }
 
     /**
@@ -323,7 +322,7 @@ public class URIBuilder {
         return new URIPartBuilder(() -> this.fragment, (String value) -> this.fragment = value,
                 null, null,
                 object -> append(this.appendedFragment, object, value -> this.appendedFragment = value),
-                () -> this.appendedFragment);
+                () -> this.appendedFragment, PercentEncoder.FRAGMENT::encode);
     }
 
 
@@ -338,7 +337,7 @@ public class URIBuilder {
         return new URIPartBuilder(() -> this.query, (String value) -> this.query = value,
                 '&', (this.query == null && this.appendedQuery == null) ? null : '&',
                 object -> append(this.appendedQuery, object, value -> this.appendedQuery = value),
-                () -> this.appendedQuery);
+                () -> this.appendedQuery, URIBuilder::encodeQuery);
     }
 
     private URIPartBuilder lastSegment() {
@@ -434,14 +433,14 @@ public class URIBuilder {
             throw new IllegalStateException("This URI is template: " + toDecodedString());
         }
         try {
-            String fragment = merge(false, this.fragment, this.appendedFragment);
+            String fragment = merge(null, this.fragment, this.appendedFragment);
             if (isOpaque()) {
-                String ssp = merge(false, this.schemeSpecificPart, this.appendedSsp);
+                String ssp = merge(null, this.schemeSpecificPart, this.appendedSsp);
                 return new URI(scheme, ssp, fragment);
             } else {
-                String host = merge(false, this.host, this.appendedHost);
-                String path = merge(false, this.path, this.appendedPath);
-                String query = merge(false, this.query, this.appendedQuery);
+                String host = merge(null, this.host, this.appendedHost);
+                String path = merge(null, this.path, this.appendedPath);
+                String query = merge(null, this.query, this.appendedQuery);
                 URI uri = new URI(scheme, userInfo, host, port, path, query, fragment);
                 return uri.normalize();
             }
@@ -450,27 +449,42 @@ public class URIBuilder {
         }
     }
 
-    private String merge(boolean encode, String uriPart, String appendedPart) {
+    /**
+     * Merges decoded part of the URI with the appended part, which is always kept as is
+     * @param encoder the encoder of the decoded part or <code>null</code> to keep it as is
+     */
+    private String merge(UnaryOperator<String> encoder, String uriPart, String appendedPart) {
         if (uriPart == null || uriPart.isEmpty()) return appendedPart;
-        String prefix = encode ? encodePartIgnoreDelimiters(uriPart) : uriPart;
+        String prefix = encoder != null ? encoder.apply(uriPart) : uriPart;
         if (appendedPart == null) return prefix;
         return prefix + appendedPart;
     }
 
-    private String encodePartIgnoreDelimiters(String uriPart) {
-        StringBuilder result = new StringBuilder();
-        for (int i = 0; i < uriPart.length(); i++) {
-            char c = uriPart.charAt(i);
-            if (c == '&' || c == '=' || c == '/') {
-                result.append(c);
-            } else {
-                try {
-                    result.append(URLEncoder.encode(String.valueOf(c), "utf-8"));
-                } catch (UnsupportedEncodingException e) {
-                    throw new IllegalStateException(e);
-                }
-            }
+    private static UnaryOperator<String> hostEncoder(String host) {
+        // IP literals contain colons that must stay unencoded
+        return host != null && host.indexOf(':') >= 0 ? null : PercentEncoder.REG_NAME::encode;
+    }
 
+    /**
+     * Encodes decoded query, keeping the delimiters of the parameters. Names and values are encoded
+     * as form parameters, so that decoded <code>&amp;</code>, <code>=</code> and <code>+</code> in them are
+     * percent-encoded rather than read as delimiters or as space.
+     */
+    private static String encodeQuery(String query) {
+        StringBuilder result = new StringBuilder(query.length() + 16);
+        int from = 0;
+        while (from <= query.length()) {
+            int to = query.indexOf('&', from);
+            if (to < 0) to = query.length();
+            if (from > 0) result.append('&');
+            int assignment = query.indexOf('=', from);
+            if (assignment < 0 || assignment > to) assignment = to;
+            PercentEncoder.QUERY_PARAM.encodeTo(query, from, assignment, result);
+            if (assignment < to) {
+                result.append('=');
+                PercentEncoder.QUERY_PARAM.encodeTo(query, assignment + 1, to, result);
+            }
+            from = to + 1;
         }
         return result.toString();
     }
@@ -493,10 +507,10 @@ public class URIBuilder {
     }
 
     private String toDecodedString() {
-        String host = merge(true, this.host, this.appendedHost);
-        String path = merge(true, this.path, this.appendedPath);
-        String query = merge(true, this.query, this.appendedQuery);
-        String fragment = merge(true, this.fragment, this.appendedFragment);
+        String host = merge(hostEncoder(this.host), this.host, this.appendedHost);
+        String path = merge(PercentEncoder.PATH::encode, this.path, this.appendedPath);
+        String query = merge(URIBuilder::encodeQuery, this.query, this.appendedQuery);
+        String fragment = merge(PercentEncoder.FRAGMENT::encode, this.fragment, this.appendedFragment);
         StringBuilder sb = new StringBuilder();
         if (scheme != null) {
             sb.append(scheme);
@@ -510,7 +524,7 @@ public class URIBuilder {
                     sb.append("//");
                 }
                 if (userInfo != null) {
-                    sb.append(userInfo);
+                    sb.append(PercentEncoder.USERINFO.encode(userInfo));
                     sb.append('@');
                 }
                 boolean needBrackets = ((host.indexOf(':') >= 0)
@@ -565,19 +579,22 @@ public class URIBuilder {
         private Character delimiter;
         private Character currentDelimiter;
         private final Consumer<Object> consumer;
+        private final UnaryOperator<String> encoder;
 
         URIPartBuilder(Supplier<String> initialValue,
                        Consumer<String> replaceInitialValue,
                        Character delimiter,
                        Character currentDelimiter,
                        Consumer<Object> consumer,
-                       Supplier<String> appendedValue) {
+                       Supplier<String> appendedValue,
+                       UnaryOperator<String> encoder) {
             this.initialValue = initialValue;
             this.replaceInitialValue = replaceInitialValue;
             this.appendedValue = appendedValue;
             this.currentDelimiter = currentDelimiter;
             this.delimiter = delimiter;
             this.consumer = consumer;
+            this.encoder = encoder;
         }
 
         /**
@@ -652,7 +669,7 @@ public class URIBuilder {
 
         @Override
         public String toString() {
-            return merge(template, initialValue.get(), appendedValue.get());
+            return merge(template ? encoder : null, initialValue.get(), appendedValue.get());
         }
 
     }
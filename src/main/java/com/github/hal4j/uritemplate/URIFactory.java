@@ -12,6 +12,10 @@ public final class URIFactory {
         return new URITemplate(baseUriString);
     }
 
+    public static URITemplate templateUri(String baseUriString, URITemplateEngine engine) {
+        return new URITemplate(baseUriString, engine);
+    }
+
     public static URIBuilder uri(String baseUriString) {
         return new URIBuilder(baseUriString);
     }
@@ -1,7 +1,12 @@
 package com.github.hal4j.uritemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 import static com.github.hal4j.uritemplate.ParamHolder.discardMissing;
 import static com.github.hal4j.uritemplate.ParamHolder.map;
@@ -16,6 +21,13 @@ public class URITemplate {
 
     private final String value;
 
+    private final URITemplateEngine engine;
+
+    // lazily initialized without synchronization: the parsed form of CompiledURITemplate is held in final fields,
+    // so an instance read through a race is fully constructed, and its mutable state (expansion counter,
+    // specialized code, matcher) is either volatile or tolerates races; at worst the template is compiled twice
+    private CompiledURITemplate compiled;
+
     /**
      * Creates new URI template from the given string. Validation of
      * the template syntax does not happen at this stage and is deferred
@@ -23,8 +35,30 @@ public class URITemplate {
      * @param string the string supposedly containing an URI template
      */
     public URITemplate(String string) {
+        this(string, URITemplateEngine.defaultEngine());
+    }
+
+    /**
+     * Creates new URI template from the given string, bound to the given engine.
+     * The template and all results of its expansion will be compiled by this engine.
+     * @param string the string supposedly containing an URI template
+     * @param engine the engine to use
+     */
+    public URITemplate(String string, URITemplateEngine engine) {
         if (string == null) throw new NullPointerException("URI template string cannot be null");
+        if (engine == null) throw new NullPointerException("engine");
         this.value = string;
+        this.engine = engine;
+    }
+
+    /**
+     * Creates URI template from its compiled form, e.g. the residual template of partial expansion
+     * @param compiled the compiled template
+     */
+    URITemplate(CompiledURITemplate compiled) {
+        this.value = compiled.value();
+        this.engine = compiled.engine();
+        this.compiled = compiled;
     }
 
     /**
@@ -43,8 +77,107 @@ public class URITemplate {
      * @return new URI template containing the result of the expansion
      */
     public URITemplate expand(ParamHolder params, boolean partial) {
-        String expanded = URITemplateParser.parseAndExpand(value, partial, params);
-        return new URITemplate(expanded);
+        if (partial) {
+            return new URITemplate(compiled().expandPartial(params));
+        }
+        String expanded = compiled().expand(params, false);
+        return new URITemplate(expanded, engine);
+    }
+
+    /**
+     * Fully expand this template for every parameter holder. Unlike {@link #expand(ParamHolder)}
+     * the results are returned as strings, since bulk expansions are usually written out as is.
+     * @param params the parameter holders
+     * @return the results of the expansion in the order of the holders
+     * @see CompiledURITemplate#expandAll(Iterable)
+     */
+    public List<String> expandAll(Iterable<? extends ParamHolder> params) {
+        return compiled().expandAll(params);
+    }
+
+    /**
+     * Fully expand this template for every parameter holder
+     * @param params the parameter holders
+     * @return the results of the expansion in the order of the holders
+     * @see CompiledURITemplate#expandAll(ParamHolder[])
+     */
+    public String[] expandAll(ParamHolder[] params) {
+        return compiled().expandAll(params);
+    }
+
+    /**
+     * Lazily expand this template for every parameter holder of given stream, in parallel if the stream is parallel
+     * @param params the stream of parameter holders
+     * @return the stream of the expansion results
+     * @see CompiledURITemplate#expandAll(Stream)
+     */
+    public Stream<String> expandAll(Stream<? extends ParamHolder> params) {
+        return compiled().expandAll(params);
+    }
+
+    /**
+     * Fully expand this template for every parameter holder in parallel in the common fork-join pool
+     * @param params the parameter holders
+     * @return the results of the expansion in the order of the holders
+     * @see CompiledURITemplate#expandAllParallel(ParamHolder[], Executor)
+     */
+    public String[] expandAllParallel(ParamHolder[] params) {
+        return compiled().expandAllParallel(params);
+    }
+
+    /**
+     * Fully expand this template for every parameter holder in parallel using given executor
+     * @param params the parameter holders
+     * @param executor the executor to run the expansion tasks in
+     * @return the results of the expansion in the order of the holders
+     * @see CompiledURITemplate#expandAllParallel(ParamHolder[], Executor)
+     */
+    public String[] expandAllParallel(ParamHolder[] params, Executor executor) {
+        return compiled().expandAllParallel(params, executor);
+    }
+
+    /**
+     * Fully expand this template using custom parameter holder, writing the result directly to given sink
+     * instead of creating new template.
+     * @param params the custom parameter holder
+     * @param result the sink to write the result to, e.g. a {@link java.io.Writer}
+     * @throws IOException if the sink fails
+     */
+    public void expandTo(ParamHolder params, Appendable result) throws IOException {
+        compiled().expandTo(params, result);
+    }
+
+    /**
+     * Fully expand this template using custom parameter holder, appending the result to given string builder
+     * instead of creating new template.
+     * @param params the custom parameter holder
+     * @param result the string builder to append the result to
+     */
+    public void expandTo(ParamHolder params, StringBuilder result) {
+        compiled().expandTo(params, result);
+    }
+
+    /**
+     * Fully expand this template using custom parameter holder, writing UTF-8 bytes of the result
+     * directly to given buffer.
+     * @param params the custom parameter holder
+     * @param target the buffer to write the result to
+     * @see CompiledURITemplate#expandToBytes(ParamHolder, ByteBuffer)
+     */
+    public void expandToBytes(ParamHolder params, ByteBuffer target) {
+        compiled().expandToBytes(params, target);
+    }
+
+    /**
+     * Fully expand this template using custom parameter holder, writing UTF-8 bytes of the result
+     * directly to given stream.
+     * @param params the custom parameter holder
+     * @param target the stream to write the result to
+     * @throws IOException if the stream fails
+     * @see CompiledURITemplate#expandToBytes(ParamHolder, OutputStream)
+     */
+    public void expandToBytes(ParamHolder params, OutputStream target) throws IOException {
+        compiled().expandToBytes(params, target);
     }
 
     /**
@@ -64,8 +197,8 @@ public class URITemplate {
      * @return new URI template containing the result of the expansion
      */
     public URITemplate expand(Object... substitutions) {
-        String expanded = URITemplateParser.parseAndExpand(value, false, substitutions);
-        return new URITemplate(expanded);
+        String expanded = compiled().expand(new ParamHolder.ParamArray(substitutions), false);
+        return new URITemplate(expanded, engine);
     }
 
     /**
@@ -84,8 +217,7 @@ public class URITemplate {
      * @return new URI template containing the result of the expansion
      */
     public URITemplate expandPartial(Map<String, ?> substitutions) {
-        String expanded = URITemplateParser.parseAndExpand(value, true, substitutions);
-        return new URITemplate(expanded);
+        return new URITemplate(compiled().expandPartial(map(substitutions)));
     }
 
     /**
@@ -95,8 +227,7 @@ public class URITemplate {
      * @return new URI template containing the result of the expansion
      */
     public URITemplate expandPartial(Object... substitutions) {
-        String expanded = URITemplateParser.parseAndExpand(value, true, substitutions);
-        return new URITemplate(expanded);
+        return new URITemplate(compiled().expandPartial(new ParamHolder.ParamArray(substitutions)));
     }
 
     /**
@@ -116,8 +247,27 @@ public class URITemplate {
     public URITemplate discard(Iterable<String> names) {
         Map<String, Object> map = new HashMap<>();
         names.forEach(name -> map.put(name, URITemplateParser.DISCARDED));
-        String expanded = URITemplateParser.parseAndExpand(value, true, map);
-        return new URITemplate(expanded);
+        return new URITemplate(compiled().expandPartial(map(map)));
+    }
+
+    /**
+     * Binds the values of some variables of this template once for many expansions
+     * @param constants the values of the variables to bind
+     * @return compiled template with given constants pre-encoded into its expansion code
+     * @see CompiledURITemplate#bindConstants(Map)
+     */
+    public CompiledURITemplate bind(Map<String, ?> constants) {
+        return compiled().bindConstants(constants);
+    }
+
+    /**
+     * Extracts values of the variables of this template from given URI
+     * @param uri the concrete URI to match
+     * @return captured values or <code>null</code> if the URI does not match this template
+     * @see URITemplateMatcher
+     */
+    public URITemplateMatch match(CharSequence uri) {
+        return compiled().matcher().match(uri);
     }
 
     /**
@@ -125,7 +275,8 @@ public class URITemplate {
      * @return <code>true</code> if template is fully expanded, <code>false</code> otherwise
      */
     public boolean isExpanded() {
-        return value.indexOf('{') < 0;
+        CompiledURITemplate compiled = this.compiled;
+        return compiled != null ? compiled.isExpanded() : value.indexOf('{') < 0;
     }
 
     /**
@@ -133,14 +284,28 @@ public class URITemplate {
      * @return list of parameters in this template or empty list if template is fully expanded.
      */
     public List<URITemplateVariable> variables() {
-        List<URITemplateVariable> vars = new ArrayList<>();
-        URITemplateParser.parse(value, new URITemplateParserListener.Adapter() {
-            @Override
-            public void onVariable(URITemplateVariable var) {
-                vars.add(var);
-            }
-        });
-        return vars;
+        return new ArrayList<>(compiled().variables());
+    }
+
+    /**
+     * Returns the parsed form of this template, obtaining it from the engine cache on first access.
+     * @return compiled template
+     * @throws URITemplateSyntaxException if this template is malformed
+     */
+    CompiledURITemplate compiled() {
+        CompiledURITemplate compiled = this.compiled;
+        if (compiled == null) {
+            compiled = engine.compile(value);
+            this.compiled = compiled;
+        }
+        return compiled;
+    }
+
+    /**
+     * @return the engine this template is bound to
+     */
+    public URITemplateEngine engine() {
+        return engine;
     }
 
     /**
@@ -0,0 +1,192 @@
+package com.github.hal4j.uritemplate;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Bounded concurrent cache of compiled URI templates keyed by template string.
+ * <p>
+ * Lookups are lock-free reads of a {@link ConcurrentHashMap}. When the cache grows beyond its maximum size,
+ * the least recently used entries are evicted approximately using CLOCK (second chance) algorithm:
+ * every hit marks the entry as referenced, and the eviction hand clears the mark or removes unmarked entries.
+ * Only one thread performs eviction at a time, other threads never wait for it.
+ * </p>
+ */
+public final class URITemplateCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 4096;
+
+    private final int maximumSize;
+
+    private final ConcurrentHashMap<String, Entry> entries;
+
+    private final Function<String, CompiledURITemplate> compiler;
+
+    private final URITemplateEngineListener listener;
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    // guarded by evictionLock
+    private Iterator<Map.Entry<String, Entry>> hand;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Returns process-wide cache of the {@link URITemplateEngine#defaultEngine() default engine}
+     * @return the shared cache instance
+     */
+    public static URITemplateCache shared() {
+        return URITemplateEngine.defaultEngine().cache();
+    }
+
+    /**
+     * Creates new cache of templates compiled by given function. Caches are created by the engine owning them
+     * (see {@link URITemplateEngine.Builder#cacheSize(int)}), so that templates are always compiled
+     * with the limits and the listener of that engine.
+     * @param maximumSize the maximum number of compiled templates to keep or 0 to disable caching
+     * @param compiler the function compiling the templates
+     * @param listener the listener of the engine or <code>null</code>
+     */
+    URITemplateCache(int maximumSize, Function<String, CompiledURITemplate> compiler,
+                     URITemplateEngineListener listener) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("Maximum size cannot be negative: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.compiler = compiler;
+        this.listener = listener;
+        this.entries = new ConcurrentHashMap<>(Math.min(maximumSize, DEFAULT_MAXIMUM_SIZE));
+    }
+
+    /**
+     * Returns compiled form of given template, compiling and caching it if necessary.
+     * Malformed templates are not cached.
+     * @param template the template string
+     * @return compiled template
+     * @throws URITemplateSyntaxException if the template is malformed
+     */
+    public CompiledURITemplate get(String template) {
+        if (template == null) {
+            throw new NullPointerException("template");
+        }
+        Entry entry = entries.get(template);
+        if (entry != null) {
+            hits.increment();
+            if (listener != null) listener.onCacheHit(template);
+            entry.touch();
+            return entry.compiled;
+        }
+        misses.increment();
+        if (listener != null) listener.onCacheMiss(template);
+        return put(template, compiler.apply(template));
+    }
+
+    private CompiledURITemplate put(String template, CompiledURITemplate compiled) {
+        if (maximumSize == 0) return compiled;
+        Entry existing = entries.putIfAbsent(template, new Entry(compiled));
+        if (existing != null) {
+            return existing.compiled;
+        }
+        if (entries.size() > maximumSize) {
+            evict();
+        }
+        return compiled;
+    }
+
+    private void evict() {
+        if (!evictionLock.tryLock()) return;
+        try {
+            // each entry gets at most one second chance, so two full turns of the hand are always enough
+            int budget = 2 * entries.size();
+            while (entries.size() > maximumSize && budget-- > 0) {
+                if (hand == null || !hand.hasNext()) {
+                    hand = entries.entrySet().iterator();
+                    if (!hand.hasNext()) return;
+                }
+                Map.Entry<String, Entry> candidate = hand.next();
+                Entry entry = candidate.getValue();
+                if (entry.referenced) {
+                    entry.referenced = false;
+                } else if (entries.remove(candidate.getKey(), entry)) {
+                    evictions.increment();
+                    if (listener != null) listener.onCacheEviction(entry.compiled);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes all entries from this cache. Statistics are not reset.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return the current number of cached templates
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of lookups that found compiled template in this cache
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that required compilation of the template
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of entries removed from this cache to keep its size within the limit
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "URITemplateCache{size=" + size()
+                + ", maximumSize=" + maximumSize
+                + ", hits=" + hitCount()
+                + ", misses=" + missCount()
+                + ", evictions=" + evictionCount() + '}';
+    }
+
+    private static final class Entry {
+
+        final CompiledURITemplate compiled;
+
+        volatile boolean referenced;
+
+        Entry(CompiledURITemplate compiled) {
+            this.compiled = compiled;
+        }
+
+        void touch() {
+            // read before write to avoid invalidating the cache line on every hit
+            if (!referenced) referenced = true;
+        }
+    }
+
+}
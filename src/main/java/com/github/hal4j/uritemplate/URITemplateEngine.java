@@ -0,0 +1,206 @@
+package com.github.hal4j.uritemplate;
+
+/**
+ * Configurable runtime for parsing and expansion of URI templates. An engine owns its cache of compiled templates
+ * and the limits applied to templates compiled by it, so differently tuned engines can be used side by side.
+ * <p>
+ * Templates created with {@link URITemplate#URITemplate(String)} and {@link URIFactory#templateUri(String)}
+ * are bound to the {@link #defaultEngine() default engine}.
+ * </p>
+ */
+public final class URITemplateEngine {
+
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private static final URITemplateEngine DEFAULT = builder().build();
+
+    private final URITemplateCache cache;
+
+    private final int specializationThreshold;
+
+    private final int maxTemplateLength;
+
+    private final int maxExpansionLength;
+
+    private final URITemplateEngineListener listener;
+
+    /**
+     * Returns the engine used by templates not explicitly bound to any other engine
+     * @return default engine
+     */
+    public static URITemplateEngine defaultEngine() {
+        return DEFAULT;
+    }
+
+    /**
+     * Creates new builder of the engine initialized with default settings
+     * @return new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private URITemplateEngine(Builder builder) {
+        this.specializationThreshold = builder.specializationThreshold;
+        this.maxTemplateLength = builder.maxTemplateLength;
+        this.maxExpansionLength = builder.maxExpansionLength;
+        this.listener = builder.listener;
+        this.cache = new URITemplateCache(builder.cacheSize, this::compileUncached, listener);
+    }
+
+    /**
+     * Creates new URI template bound to this engine
+     * @param template the string supposedly containing an URI template
+     * @return new URI template
+     */
+    public URITemplate template(String template) {
+        return new URITemplate(template, this);
+    }
+
+    /**
+     * Returns compiled form of given template, using the cache of this engine
+     * @param template the template string
+     * @return compiled template
+     * @throws URITemplateSyntaxException if the template is malformed
+     * @throws IllegalArgumentException if the template is longer than allowed by this engine
+     */
+    public CompiledURITemplate compile(String template) {
+        return cache.get(template);
+    }
+
+    CompiledURITemplate compileUncached(String template) {
+        if (template.length() > maxTemplateLength) {
+            throw new IllegalArgumentException("Template length (" + template.length()
+                    + ") exceeds the limit of " + maxTemplateLength + " characters");
+        }
+        if (listener == null) {
+            return URITemplateParser.compile(template, this);
+        }
+        long start = System.nanoTime();
+        CompiledURITemplate compiled = URITemplateParser.compile(template, this);
+        listener.onParse(template, System.nanoTime() - start);
+        return compiled;
+    }
+
+    /**
+     * @return the cache of templates compiled by this engine, sized by {@link Builder#cacheSize(int)}
+     */
+    public URITemplateCache cache() {
+        return cache;
+    }
+
+    /**
+     * @return the number of full expansions after which a compiled template is specialized
+     * @see CompiledURITemplate#specialize()
+     */
+    public int specializationThreshold() {
+        return specializationThreshold;
+    }
+
+    /**
+     * @return the maximum length of template string accepted by this engine
+     */
+    public int maxTemplateLength() {
+        return maxTemplateLength;
+    }
+
+    /**
+     * @return the maximum length of the expansion result produced by this engine
+     */
+    public int maxExpansionLength() {
+        return maxExpansionLength;
+    }
+
+    /**
+     * @return the listener receiving instrumentation events of this engine or <code>null</code> if there is none
+     */
+    public URITemplateEngineListener listener() {
+        return listener;
+    }
+
+    /**
+     * Builder of the engine configuration
+     */
+    public static final class Builder {
+
+        private int cacheSize = URITemplateCache.DEFAULT_MAXIMUM_SIZE;
+
+        private int specializationThreshold = 1000;
+
+        private int maxTemplateLength = UNLIMITED;
+
+        private int maxExpansionLength = UNLIMITED;
+
+        private URITemplateEngineListener listener;
+
+        private Builder() {
+        }
+
+        /**
+         * Set the maximum number of compiled templates kept in the cache of the engine
+         * @param size the cache size or 0 to disable caching
+         * @return this
+         */
+        public Builder cacheSize(int size) {
+            if (size < 0) throw new IllegalArgumentException("Cache size cannot be negative: " + size);
+            this.cacheSize = size;
+            return this;
+        }
+
+        /**
+         * Set the number of full expansions after which a compiled template is specialized.
+         * Templates expanded with slot bindings (see {@link CompiledURITemplate#bind(Object...)}) and templates with
+         * bound constants (see {@link CompiledURITemplate#bindConstants(java.util.Map)}) are always specialized,
+         * regardless of this threshold, since their expansion relies on specialized code.
+         * @param threshold positive number of expansions or {@link #UNLIMITED} to disable specialization
+         * @return this
+         */
+        public Builder specializationThreshold(int threshold) {
+            this.specializationThreshold = positive("Specialization threshold", threshold);
+            return this;
+        }
+
+        /**
+         * Set the maximum length of template string accepted by the engine
+         * @param length the maximum number of characters
+         * @return this
+         */
+        public Builder maxTemplateLength(int length) {
+            this.maxTemplateLength = positive("Maximum template length", length);
+            return this;
+        }
+
+        /**
+         * Set the maximum length of the expansion result. Expansion producing longer result
+         * fails with {@link IllegalArgumentException}. Full expansion fails as soon as the limit is exceeded,
+         * without producing the rest of the result; the result of partial expansion is checked once it is built.
+         * @param length the maximum number of characters
+         * @return this
+         */
+        public Builder maxExpansionLength(int length) {
+            this.maxExpansionLength = positive("Maximum expansion length", length);
+            return this;
+        }
+
+        /**
+         * Set the listener receiving instrumentation events of the engine, e.g. {@link URITemplateMetrics}
+         * @param listener the listener or <code>null</code> to disable instrumentation
+         * @return this
+         */
+        public Builder listener(URITemplateEngineListener listener) {
+            // a Flight Recorder listener built without Flight Recorder would only add overhead
+            this.listener = listener == URITemplateFlightRecorder.DISABLED ? null : listener;
+            return this;
+        }
+
+        public URITemplateEngine build() {
+            return new URITemplateEngine(this);
+        }
+
+        private static int positive(String name, int value) {
+            if (value <= 0) throw new IllegalArgumentException(name + " must be positive: " + value);
+            return value;
+        }
+    }
+
+}
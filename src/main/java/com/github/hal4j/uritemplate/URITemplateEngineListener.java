@@ -0,0 +1,111 @@
+package com.github.hal4j.uritemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Instrumentation SPI of the {@link URITemplateEngine}: receives events from the parsing, caching and expansion
+ * hot paths of an engine configured with {@link URITemplateEngine.Builder#listener(URITemplateEngineListener)}.
+ * Engines without listener do not measure anything, so instrumentation costs nothing unless installed.
+ * <p>
+ * Events are delivered synchronously on the thread performing the operation, so implementations must be
+ * thread-safe and fast. See {@link URITemplateMetrics} for the built-in implementation.
+ * All methods do nothing by default.
+ * </p>
+ */
+public interface URITemplateEngineListener {
+
+    /**
+     * Called after a template string has been parsed and compiled
+     * @param template the template string
+     * @param nanos the time spent, in nanoseconds
+     */
+    default void onParse(String template, long nanos) {
+    }
+
+    /**
+     * Called when compiled template has been found in the cache of the engine
+     * @param template the template string
+     */
+    default void onCacheHit(String template) {
+    }
+
+    /**
+     * Called when compiled template has not been found in the cache of the engine
+     * @param template the template string
+     */
+    default void onCacheMiss(String template) {
+    }
+
+    /**
+     * Called when compiled template has been evicted from the cache of the engine
+     * @param template the evicted template
+     */
+    default void onCacheEviction(CompiledURITemplate template) {
+    }
+
+    /**
+     * Called after full expansion of a template
+     * @param template the expanded template
+     * @param length the number of characters produced
+     * @param largestCollection the size of the largest exploded list or map or 0 if none was exploded
+     * @param nanos the time spent, in nanoseconds
+     */
+    default void onExpansion(CompiledURITemplate template, long length, int largestCollection, long nanos) {
+    }
+
+    /**
+     * Called for every value percent-encoded during expansion
+     * @param fastPath <code>true</code> if the value did not need encoding and was copied as is
+     */
+    default void onEncode(boolean fastPath) {
+    }
+
+    /**
+     * Combines listeners into one that delivers every event to all of them in the given order
+     * @param listeners the listeners, <code>null</code> elements and disabled Flight Recorder listeners are ignored
+     * @return combined listener or <code>null</code> if there are no listeners
+     */
+    static URITemplateEngineListener combine(URITemplateEngineListener... listeners) {
+        List<URITemplateEngineListener> all = new ArrayList<>();
+        for (URITemplateEngineListener listener : listeners) {
+            if (listener != null && listener != URITemplateFlightRecorder.DISABLED) all.add(listener);
+        }
+        if (all.size() <= 1) return all.isEmpty() ? null : all.get(0);
+        URITemplateEngineListener[] targets = all.toArray(new URITemplateEngineListener[0]);
+        return new URITemplateEngineListener() {
+            @Override
+            public void onParse(String template, long nanos) {
+                for (URITemplateEngineListener target : targets) target.onParse(template, nanos);
+            }
+
+            @Override
+            public void onCacheHit(String template) {
+                for (URITemplateEngineListener target : targets) target.onCacheHit(template);
+            }
+
+            @Override
+            public void onCacheMiss(String template) {
+                for (URITemplateEngineListener target : targets) target.onCacheMiss(template);
+            }
+
+            @Override
+            public void onCacheEviction(CompiledURITemplate template) {
+                for (URITemplateEngineListener target : targets) target.onCacheEviction(template);
+            }
+
+            @Override
+            public void onExpansion(CompiledURITemplate template, long length, int largestCollection, long nanos) {
+                for (URITemplateEngineListener target : targets) {
+                    target.onExpansion(template, length, largestCollection, nanos);
+                }
+            }
+
+            @Override
+            public void onEncode(boolean fastPath) {
+                for (URITemplateEngineListener target : targets) target.onEncode(fastPath);
+            }
+        };
+    }
+
+}
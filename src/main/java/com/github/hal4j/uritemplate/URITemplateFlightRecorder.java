@@ -0,0 +1,129 @@
+package com.github.hal4j.uritemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+
+/**
+ * Factory of the engine listener emitting JDK Flight Recorder events for slow parses, large expansions
+ * and cache evictions:
+ * <ul>
+ *     <li><code>com.github.hal4j.uritemplate.SlowParse</code> with the template string and the time spent;</li>
+ *     <li><code>com.github.hal4j.uritemplate.LargeExpansion</code> with the template string, its operator mix,
+ *     the output length, the size of the largest exploded list or map and the time spent;</li>
+ *     <li><code>com.github.hal4j.uritemplate.CacheEviction</code> with the template string and its operator mix.</li>
+ * </ul>
+ * The events are disabled by default and must be enabled in the recording, e.g. by
+ * <code>jfr configure</code> or <code>Recording.enable(String)</code>.
+ * <pre>
+ * URITemplateEngine engine = URITemplateEngine.builder()
+ *         .listener(URITemplateFlightRecorder.builder().slowParseThreshold(Duration.ofMillis(1)).build())
+ *         .build();
+ * </pre>
+ * On runtimes without Flight Recorder API the factory returns a listener that does nothing and is ignored
+ * by the engine, so the engine is not instrumented at all.
+ * Use {@link URITemplateEngineListener#combine(URITemplateEngineListener...)} to install it together with metrics.
+ */
+public final class URITemplateFlightRecorder {
+
+    private static final boolean AVAILABLE = isPresent("jdk.jfr.Event");
+
+    /**
+     * The listener built on runtimes without Flight Recorder, ignored by engines and by
+     * {@link URITemplateEngineListener#combine(URITemplateEngineListener...)}
+     */
+    static final URITemplateEngineListener DISABLED = new URITemplateEngineListener() {
+    };
+
+    private URITemplateFlightRecorder() {
+    }
+
+    /**
+     * @return <code>true</code> if the runtime provides Flight Recorder API
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    /**
+     * Creates new builder of the listener initialized with default thresholds
+     * @return new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static boolean isPresent(String className) {
+        try {
+            Class.forName(className, false, URITemplateFlightRecorder.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Builder of the listener thresholds
+     */
+    public static final class Builder {
+
+        private Duration slowParseThreshold = Duration.ofMillis(1);
+
+        private long largeExpansionThreshold = 4096;
+
+        private int largeCollectionThreshold = 1000;
+
+        private Builder() {
+        }
+
+        /**
+         * Set the minimal duration of parse reported as slow
+         * @param threshold the duration
+         * @return this
+         */
+        public Builder slowParseThreshold(Duration threshold) {
+            if (threshold.isNegative()) throw new IllegalArgumentException("Threshold cannot be negative: " + threshold);
+            this.slowParseThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * Set the minimal output length of expansion reported as large
+         * @param length the number of characters
+         * @return this
+         */
+        public Builder largeExpansionThreshold(long length) {
+            if (length < 0) throw new IllegalArgumentException("Threshold cannot be negative: " + length);
+            this.largeExpansionThreshold = length;
+            return this;
+        }
+
+        /**
+         * Set the minimal size of exploded list or map making the expansion reported as large
+         * @param size the number of elements
+         * @return this
+         */
+        public Builder largeCollectionThreshold(int size) {
+            if (size < 0) throw new IllegalArgumentException("Threshold cannot be negative: " + size);
+            this.largeCollectionThreshold = size;
+            return this;
+        }
+
+        /**
+         * @return the listener emitting Flight Recorder events or a listener doing nothing
+         *         if Flight Recorder is unavailable, see {@link #isAvailable()}
+         */
+        public URITemplateEngineListener build() {
+            if (!AVAILABLE) return DISABLED;
+            try {
+                // loaded reflectively, so that the event classes are never resolved without jdk.jfr
+                return (URITemplateEngineListener) Class.forName("com.github.hal4j.uritemplate.JfrEngineListener")
+                        .getDeclaredConstructor(long.class, long.class, int.class)
+                        .newInstance(slowParseThreshold.toNanos(), largeExpansionThreshold, largeCollectionThreshold);
+            } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException
+                    | IllegalAccessException | InvocationTargetException | LinkageError e) {
+                return DISABLED;
+            }
+        }
+    }
+
+}
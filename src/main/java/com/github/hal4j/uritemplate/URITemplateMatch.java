@@ -0,0 +1,140 @@
+package com.github.hal4j.uritemplate;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Values of template variables captured from a concrete URI by {@link URITemplateMatcher}.
+ * Captures are recorded as offsets into the matched URI, indexed by the variable slots of the template
+ * (see {@link CompiledURITemplate#slotNames()}); values are percent-decoded only when requested.
+ * <p>
+ * Instances are mutable and can be reused for subsequent matches of the same template to avoid allocation,
+ * but must not be shared between threads. A match can be used as a parameter holder, e.g. to expand
+ * the same or another template with the captured values.
+ * </p>
+ */
+public final class URITemplateMatch extends SlotBinding {
+
+    private final String[] names;
+
+    private final int[] starts;
+
+    private final int[] ends;
+
+    private final String[] decoded;
+
+    private CharSequence input;
+
+    URITemplateMatch(String[] names) {
+        this.names = names;
+        this.starts = new int[names.length];
+        this.ends = new int[names.length];
+        this.decoded = new String[names.length];
+        reset(null);
+    }
+
+    void reset(CharSequence input) {
+        this.input = input;
+        Arrays.fill(starts, -1);
+        Arrays.fill(ends, -1);
+        Arrays.fill(decoded, null);
+    }
+
+    void capture(int slot, int start, int end) {
+        if (starts[slot] < 0) {
+            starts[slot] = start;
+            ends[slot] = end;
+        }
+    }
+
+    /**
+     * @return the URI this match was captured from or <code>null</code> if the last match failed
+     */
+    public CharSequence input() {
+        return input;
+    }
+
+    /**
+     * @param slot the variable slot
+     * @return <code>true</code> if the variable was found in the URI
+     */
+    public boolean isDefined(int slot) {
+        return starts[slot] >= 0;
+    }
+
+    /**
+     * @param slot the variable slot
+     * @return the index of the first character of the raw variable value in the URI or -1 if it is undefined
+     */
+    public int start(int slot) {
+        return starts[slot];
+    }
+
+    /**
+     * @param slot the variable slot
+     * @return the index after the last character of the raw variable value in the URI or -1 if it is undefined
+     */
+    public int end(int slot) {
+        return ends[slot];
+    }
+
+    /**
+     * Returns the percent-decoded value of the variable
+     * @param slot the variable slot
+     * @return decoded value or <code>null</code> if the variable is undefined
+     */
+    public String value(int slot) {
+        if (starts[slot] < 0) return null;
+        String value = decoded[slot];
+        if (value == null) {
+            value = PercentDecoder.decode(input, starts[slot], ends[slot]);
+            decoded[slot] = value;
+        }
+        return value;
+    }
+
+    @Override
+    Object get(int slot, String name) {
+        if (slot < names.length && names[slot] == name) {
+            return value(slot);
+        }
+        return get(name);
+    }
+
+    @Override
+    public boolean containsKey(String name) {
+        int slot = indexOf(name);
+        return slot >= 0 && starts[slot] >= 0;
+    }
+
+    @Override
+    public String get(String name) {
+        int slot = indexOf(name);
+        return slot < 0 ? null : value(slot);
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return new map of decoded values of the defined variables in the order of their slots
+     */
+    public Map<String, String> toMap() {
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            if (starts[i] >= 0) map.put(names[i], value(i));
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "URITemplateMatch" + toMap();
+    }
+
+}
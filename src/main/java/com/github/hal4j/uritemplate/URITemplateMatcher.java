@@ -0,0 +1,312 @@
+package com.github.hal4j.uritemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reverse of the template expansion: extracts values of the template variables from a concrete URI.
+ * For example, matching <code>/orders/42?page=3</code> against <code>/orders/{id}{?page,size}</code>
+ * captures <code>id=42</code> and <code>page=3</code>, leaving <code>size</code> undefined.
+ * <p>
+ * Matching is a single left-to-right pass over the URI without backtracking and without regular expressions:
+ * literal segments must match exactly, and every expression consumes the longest run of characters that
+ * its operator could have produced, stopping at the first character of the following literal or,
+ * if expressions are adjacent, at the operator of the following expression (<code>{/path*}{.ext}</code> matches
+ * <code>/a/b.txt</code> as <code>path=a/b</code> and <code>ext=txt</code>).
+ * The value of the last expression extends up to the final literal segment, so reserved expansions such as
+ * <code>{+base}/path</code> may contain the characters of the final literal.
+ * </p>
+ * <ul>
+ *     <li>Query expressions (<code>?</code> and <code>&amp;</code>) match parameters by name in any order,
+ *     unknown parameters are ignored. Adjacent query expressions are matched together.</li>
+ *     <li>Path-style parameters (<code>;</code>) are matched by name in the template order,
+ *     omitted parameters are undefined.</li>
+ *     <li>Exploded variables in other expressions capture the rest of the expression including the separators,
+ *     e.g. <code>a/b/c</code> for <code>{/list*}</code>.</li>
+ * </ul>
+ * Values of variables with prefix modifier are limited to the prefix length, counted in decoded characters:
+ * <code>/abc</code> matches <code>/{x:3}</code> as <code>x=abc</code>, but <code>/abcdef</code> does not match it,
+ * since expansion of <code>{x:3}</code> never produces more than three characters.
+ * Captured values are always strings: exploded variables are not decomposed into lists or maps.
+ * An exploded query variable such as <code>{?list*}</code> captures only the first occurrence of the parameter,
+ * e.g. <code>a</code> for <code>?list=a&amp;list=b</code>, and the pairs of an exploded map are not captured,
+ * since their names differ from the variable name. Split the captured values or parse the query
+ * to restore composite values.
+ * Matchers are immutable and can be shared between threads.
+ */
+public final class URITemplateMatcher {
+
+    static final char NONE = 0;
+
+    private final String[] names;
+
+    private final String[] literals;
+
+    private final Group[] groups;
+
+    URITemplateMatcher(String[] literals, URITemplateVariable[] expressions, String[] slotNames) {
+        this.names = slotNames;
+        List<String> mergedLiterals = new ArrayList<>();
+        List<Group> mergedGroups = new ArrayList<>();
+        mergedLiterals.add(literals[0]);
+        for (int i = 0; i < expressions.length; i++) {
+            Group group = new Group(expressions[i], slotNames);
+            int last = mergedGroups.size() - 1;
+            if (group.query && last >= 0 && mergedGroups.get(last).query && literals[i].isEmpty()) {
+                mergedGroups.set(last, mergedGroups.get(last).merge(group));
+                mergedLiterals.set(mergedLiterals.size() - 1, literals[i + 1]);
+            } else {
+                mergedGroups.add(group);
+                mergedLiterals.add(literals[i + 1]);
+            }
+        }
+        this.literals = mergedLiterals.toArray(new String[0]);
+        this.groups = mergedGroups.toArray(new Group[0]);
+    }
+
+    /**
+     * Matches given URI against the template
+     * @param uri the URI to match
+     * @return captured values or <code>null</code> if the URI does not match the template
+     */
+    public URITemplateMatch match(CharSequence uri) {
+        URITemplateMatch result = newMatch();
+        return match(uri, result) ? result : null;
+    }
+
+    /**
+     * Creates an empty result object that can be reused by {@link #match(CharSequence, URITemplateMatch)}
+     * @return new result object
+     */
+    public URITemplateMatch newMatch() {
+        return new URITemplateMatch(names);
+    }
+
+    /**
+     * Matches given URI against the template, storing the captured values in given result object
+     * @param uri the URI to match
+     * @param result the result object created by {@link #newMatch()} of this matcher
+     * @return <code>true</code> if the URI matches the template
+     */
+    public boolean match(CharSequence uri, URITemplateMatch result) {
+        result.reset(uri);
+        int end = uri.length();
+        int count = groups.length;
+        String tail = literals[count];
+        int limit = end - tail.length();
+        if (limit < 0 || !regionMatches(uri, limit, tail)) {
+            result.reset(null);
+            return false;
+        }
+        int pos = 0;
+        for (int i = 0; i < count; i++) {
+            String literal = literals[i];
+            if (pos + literal.length() > limit || !regionMatches(uri, pos, literal)) {
+                result.reset(null);
+                return false;
+            }
+            pos += literal.length();
+            String next = literals[i + 1];
+            char stop = NONE;
+            if (i < count - 1) {
+                stop = next.isEmpty() ? groups[i + 1].first : next.charAt(0);
+            }
+            pos = groups[i].match(uri, pos, limit, stop, result);
+        }
+        if (pos != limit) {
+            result.reset(null);
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean regionMatches(CharSequence uri, int pos, String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (uri.charAt(pos + i) != literal.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Matching rules of a template expression derived from its operator
+     */
+    static final class Group {
+
+        final char first;
+
+        final char separator;
+
+        final boolean named;
+
+        final boolean query;
+
+        final PercentEncoder encoder;
+
+        final int[] slots;
+
+        final String[] names;
+
+        final boolean[] explode;
+
+        // prefix lengths of the components, -1 for components without prefix
+        final int[] prefixLength;
+
+        Group(URITemplateVariable expression, String[] slotNames) {
+            URITemplateOperator operator = expression.modifier().orElse(URITemplateOperator.NONE);
+            ExpansionBehavior behavior = operator.behavior();
+            this.first = behavior.first() != null ? behavior.first() : NONE;
+            this.separator = behavior.separator();
+            this.named = behavior.isNamed();
+            this.query = operator == URITemplateOperator.QUERY_START || operator == URITemplateOperator.QUERY;
+            this.encoder = behavior.isReservedAllowed() ? PercentEncoder.LITERAL : PercentEncoder.DEFAULT;
+            List<URIVarComponent> components = expression.components();
+            this.slots = new int[components.size()];
+            this.names = new String[components.size()];
+            this.explode = new boolean[components.size()];
+            this.prefixLength = new int[components.size()];
+            for (int i = 0; i < slots.length; i++) {
+                URIVarComponent component = components.get(i);
+                slots[i] = -1; // constants bound to the template are matched, but not captured
+                for (int slot = 0; slot < slotNames.length; slot++) {
+                    if (slotNames[slot].equals(component.name())) slots[i] = slot;
+                }
+                names[i] = component.name();
+                explode[i] = component.explode();
+                prefixLength[i] = component.prefixLength().orElse(-1);
+            }
+        }
+
+        private Group(Group group, Group other) {
+            this.first = group.first;
+            this.separator = group.separator;
+            this.named = true;
+            this.query = true;
+            this.encoder = group.encoder;
+            int length = group.slots.length;
+            int otherLength = other.slots.length;
+            this.slots = Arrays.copyOf(group.slots, length + otherLength);
+            System.arraycopy(other.slots, 0, slots, length, otherLength);
+            this.names = Arrays.copyOf(group.names, length + otherLength);
+            System.arraycopy(other.names, 0, names, length, otherLength);
+            this.explode = Arrays.copyOf(group.explode, length + otherLength);
+            System.arraycopy(other.explode, 0, explode, length, otherLength);
+            this.prefixLength = Arrays.copyOf(group.prefixLength, length + otherLength);
+            System.arraycopy(other.prefixLength, 0, prefixLength, length, otherLength);
+        }
+
+        Group merge(Group other) {
+            return new Group(this, other);
+        }
+
+        /**
+         * Matches the expression at given position of the URI
+         * @param uri the URI to match
+         * @param pos the position to start matching at
+         * @param limit the position to stop matching at
+         * @param stop the character that terminates the expression or {@link #NONE}
+         * @param result the result to capture values to or <code>null</code> if only the end position is needed
+         * @return position after the matched part of the URI
+         */
+        int match(CharSequence uri, int pos, int limit, char stop, URITemplateMatch result) {
+            return query ? matchQuery(uri, pos, limit, stop, result) : matchSequence(uri, pos, limit, stop, result);
+        }
+
+        private int matchSequence(CharSequence uri, int pos, int limit, char stop, URITemplateMatch result) {
+            boolean isFirst = true;
+            int k = 0;
+            while (k < slots.length && pos < limit) {
+                char prefix = isFirst ? first : separator;
+                int p = pos;
+                if (prefix != NONE) {
+                    if (uri.charAt(p) != prefix) break;
+                    p++;
+                }
+                if (named && !explode[k]) {
+                    int nameEnd = p;
+                    while (nameEnd < limit && isNameChar(uri.charAt(nameEnd))) nameEnd++;
+                    int j = find(uri, p, nameEnd, k);
+                    if (j < 0) break;
+                    k = j;
+                    p = nameEnd;
+                    if (p < limit && uri.charAt(p) == '=') p++;
+                }
+                boolean consumeSeparator = explode[k] || (separator == ',' && k == slots.length - 1);
+                int valueLimit = prefixLength[k] < 0 ? limit : prefixEnd(uri, p, limit, prefixLength[k]);
+                int v = p;
+                while (v < valueLimit) {
+                    char c = uri.charAt(v);
+                    if (c == stop || (c == separator ? !consumeSeparator : !isValueChar(c))) break;
+                    v++;
+                }
+                if (v == pos) break; // unprefixed empty value is indistinguishable from undefined one
+                if (result != null && slots[k] >= 0) result.capture(slots[k], p, v);
+                pos = v;
+                isFirst = false;
+                k++;
+            }
+            return pos;
+        }
+
+        private int matchQuery(CharSequence uri, int pos, int limit, char stop, URITemplateMatch result) {
+            if (pos >= limit || uri.charAt(pos) != first) return pos;
+            while (true) {
+                int nameStart = ++pos;
+                while (pos < limit && !isPairEnd(uri.charAt(pos), stop) && uri.charAt(pos) != '=') pos++;
+                int j = find(uri, nameStart, pos, 0);
+                int valueStart = pos;
+                if (pos < limit && uri.charAt(pos) == '=') {
+                    valueStart = ++pos;
+                    int valueLimit = j < 0 || prefixLength[j] < 0 ? limit : prefixEnd(uri, pos, limit, prefixLength[j]);
+                    while (pos < valueLimit && !isPairEnd(uri.charAt(pos), stop)) pos++;
+                }
+                if (j >= 0 && result != null && slots[j] >= 0) result.capture(slots[j], valueStart, pos);
+                if (pos >= limit || uri.charAt(pos) != separator || separator == stop) return pos;
+            }
+        }
+
+        /**
+         * Returns the end of the longest run of characters at given position that decodes to at most given number
+         * of characters, counted as by the expansion of a prefix modifier. Longer values stop the match there,
+         * so that the URI only matches if it could have been produced by the expansion.
+         */
+        private static int prefixEnd(CharSequence uri, int from, int to, int length) {
+            int remaining = length;
+            int i = from;
+            while (i < to) {
+                int b = uri.charAt(i) == '%' ? PercentDecoder.byteAt(uri, i, to) : -1;
+                if (b >= 0x80 && b < 0xC0) { // continuation of the previous character
+                    i += 3;
+                    continue;
+                }
+                int chars = b >= 0xF0 ? 2 : 1; // supplementary characters are surrogate pairs
+                if (chars > remaining) break;
+                remaining -= chars;
+                i += b >= 0 ? 3 : 1;
+            }
+            return i;
+        }
+
+        private static boolean isPairEnd(char c, char stop) {
+            return c == '&' || c == '#' || c == stop;
+        }
+
+        private int find(CharSequence uri, int from, int to, int k) {
+            int length = to - from;
+            for (int j = k; j < names.length; j++) {
+                String name = names[j];
+                if (name.length() == length && regionMatches(uri, from, name)) return j;
+            }
+            return -1;
+        }
+
+        private boolean isValueChar(char c) {
+            return c == '%' || c >= 0x80 || encoder.isAllowed(c);
+        }
+
+        private static boolean isNameChar(char c) {
+            return c == '%' || c == '.' || c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+        }
+    }
+
+}
@@ -0,0 +1,331 @@
+package com.github.hal4j.uritemplate;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Built-in {@link URITemplateEngineListener} collecting the counters and histograms of an engine:
+ * parses and their latency, cache hits, misses and evictions, expansions and their latency, expanded expressions
+ * per operator, the ratio of values copied without encoding and the distribution of the output length.
+ * <p>
+ * All counters are striped {@link LongAdder}s and histograms have fixed power-of-two buckets,
+ * so recording never blocks and does not allocate. Reading is not atomic: a snapshot taken
+ * while the engine is in use may be slightly inconsistent.
+ * </p>
+ * <pre>
+ * URITemplateMetrics metrics = new URITemplateMetrics();
+ * URITemplateEngine engine = URITemplateEngine.builder().listener(metrics).build();
+ * metrics.registerMBean("api");
+ * </pre>
+ */
+public final class URITemplateMetrics implements URITemplateEngineListener, URITemplateMetricsMXBean {
+
+    /**
+     * The domain of the object names of registered metrics
+     */
+    public static final String JMX_DOMAIN = "com.github.hal4j.uritemplate";
+
+    private static final URITemplateOperator[] OPERATORS = URITemplateOperator.values();
+
+    private final Histogram parseLatency = new Histogram();
+
+    private final LongAdder cacheHits = new LongAdder();
+
+    private final LongAdder cacheMisses = new LongAdder();
+
+    private final LongAdder cacheEvictions = new LongAdder();
+
+    private final Histogram expansionLatency = new Histogram();
+
+    private final LongAdder[] expressions = new LongAdder[OPERATORS.length];
+
+    private final LongAdder encodeFastPath = new LongAdder();
+
+    private final LongAdder encodeSlowPath = new LongAdder();
+
+    private final Histogram outputLength = new Histogram();
+
+    public URITemplateMetrics() {
+        for (int i = 0; i < expressions.length; i++) {
+            expressions[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void onParse(String template, long nanos) {
+        parseLatency.record(nanos);
+    }
+
+    @Override
+    public void onCacheHit(String template) {
+        cacheHits.increment();
+    }
+
+    @Override
+    public void onCacheMiss(String template) {
+        cacheMisses.increment();
+    }
+
+    @Override
+    public void onCacheEviction(CompiledURITemplate template) {
+        cacheEvictions.increment();
+    }
+
+    @Override
+    public void onExpansion(CompiledURITemplate template, long length, int largestCollection, long nanos) {
+        expansionLatency.record(nanos);
+        outputLength.record(length);
+        for (URITemplateVariable expression : template.expressions()) {
+            expressions[expression.modifier().orElse(URITemplateOperator.NONE).ordinal()].increment();
+        }
+    }
+
+    @Override
+    public void onEncode(boolean fastPath) {
+        (fastPath ? encodeFastPath : encodeSlowPath).increment();
+    }
+
+    /**
+     * Registers these metrics in the platform MBean server
+     * @param name the value of the <code>name</code> key of the object name, e.g. the name of the engine
+     * @return the object name of the registered MBean
+     * @throws IllegalStateException if registration fails, e.g. if the name is already in use
+     */
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=URITemplateMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register metrics " + name, e);
+        }
+    }
+
+    /**
+     * Removes the MBean registered by {@link #registerMBean(String)}, if any
+     * @param objectName the object name of the MBean
+     */
+    public static void unregisterMBean(ObjectName objectName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(objectName)) server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister metrics " + objectName, e);
+        }
+    }
+
+    @Override
+    public long getParseCount() {
+        return parseLatency.count();
+    }
+
+    @Override
+    public long getParseLatencyP50() {
+        return parseLatency.percentile(0.5);
+    }
+
+    @Override
+    public long getParseLatencyP99() {
+        return parseLatency.percentile(0.99);
+    }
+
+    @Override
+    public long getCacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMissCount() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public long getCacheEvictionCount() {
+        return cacheEvictions.sum();
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        return ratio(cacheHits.sum(), cacheMisses.sum());
+    }
+
+    @Override
+    public long getExpansionCount() {
+        return expansionLatency.count();
+    }
+
+    @Override
+    public long getExpansionLatencyP50() {
+        return expansionLatency.percentile(0.5);
+    }
+
+    @Override
+    public long getExpansionLatencyP99() {
+        return expansionLatency.percentile(0.99);
+    }
+
+    @Override
+    public Map<String, Long> getExpressionCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (URITemplateOperator operator : OPERATORS) {
+            counts.put(operator.name(), expressions[operator.ordinal()].sum());
+        }
+        return counts;
+    }
+
+    /**
+     * @param operator the operator of the expressions
+     * @return the number of expanded expressions with given operator
+     */
+    public long expressionCount(URITemplateOperator operator) {
+        return expressions[operator.ordinal()].sum();
+    }
+
+    @Override
+    public long getEncodeFastPathCount() {
+        return encodeFastPath.sum();
+    }
+
+    @Override
+    public long getEncodeSlowPathCount() {
+        return encodeSlowPath.sum();
+    }
+
+    @Override
+    public double getEncodeFastPathRatio() {
+        return ratio(encodeFastPath.sum(), encodeSlowPath.sum());
+    }
+
+    @Override
+    public double getOutputLengthMean() {
+        return outputLength.mean();
+    }
+
+    @Override
+    public long getOutputLengthP50() {
+        return outputLength.percentile(0.5);
+    }
+
+    @Override
+    public long getOutputLengthP99() {
+        return outputLength.percentile(0.99);
+    }
+
+    @Override
+    public long getOutputLengthMax() {
+        return outputLength.max();
+    }
+
+    @Override
+    public void reset() {
+        parseLatency.reset();
+        cacheHits.reset();
+        cacheMisses.reset();
+        cacheEvictions.reset();
+        expansionLatency.reset();
+        for (LongAdder counter : expressions) {
+            counter.reset();
+        }
+        encodeFastPath.reset();
+        encodeSlowPath.reset();
+        outputLength.reset();
+    }
+
+    private static double ratio(long part, long rest) {
+        long total = part + rest;
+        return total == 0 ? 0 : (double) part / total;
+    }
+
+    @Override
+    public String toString() {
+        return "URITemplateMetrics{parses=" + getParseCount()
+                + ", cacheHits=" + getCacheHitCount()
+                + ", cacheMisses=" + getCacheMissCount()
+                + ", expansions=" + getExpansionCount()
+                + ", expressions=" + getExpressionCounts()
+                + ", encodeFastPathRatio=" + getEncodeFastPathRatio()
+                + ", outputLengthMean=" + getOutputLengthMean() + '}';
+    }
+
+    /**
+     * Histogram of non-negative values with buckets for each bit length: 0, 1, 2-3, 4-7 and so on
+     */
+    private static final class Histogram {
+
+        private final LongAdder[] buckets = new LongAdder[Long.SIZE + 1];
+
+        private final LongAdder sum = new LongAdder();
+
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long value) {
+            long v = Math.max(value, 0); // nanoTime differences may be negative on some platforms
+            buckets[Long.SIZE - Long.numberOfLeadingZeros(v)].increment();
+            sum.add(v);
+            max.accumulate(v);
+        }
+
+        long count() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+
+        double mean() {
+            long count = count();
+            return count == 0 ? 0 : (double) sum.sum() / count;
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        /**
+         * @param quantile the quantile between 0 and 1
+         * @return the upper bound of the bucket containing given quantile, at most the maximum recorded value
+         */
+        long percentile(double quantile) {
+            long[] counts = new long[buckets.length];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets[i].sum();
+                total += counts[i];
+            }
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(upperBound(i), max());
+            }
+            return max();
+        }
+
+        private static long upperBound(int bucket) {
+            return bucket == Long.SIZE ? Long.MAX_VALUE : (1L << bucket) - 1;
+        }
+
+        void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            sum.reset();
+            max.reset();
+        }
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.github.hal4j.uritemplate;
+
+import java.util.Map;
+
+/**
+ * JMX management interface of {@link URITemplateMetrics}.
+ * Latencies are in nanoseconds; percentiles are upper bounds of power-of-two histogram buckets.
+ */
+public interface URITemplateMetricsMXBean {
+
+    long getParseCount();
+
+    long getParseLatencyP50();
+
+    long getParseLatencyP99();
+
+    long getCacheHitCount();
+
+    long getCacheMissCount();
+
+    long getCacheEvictionCount();
+
+    double getCacheHitRatio();
+
+    long getExpansionCount();
+
+    long getExpansionLatencyP50();
+
+    long getExpansionLatencyP99();
+
+    /**
+     * @return the number of expanded expressions by operator name
+     */
+    Map<String, Long> getExpressionCounts();
+
+    long getEncodeFastPathCount();
+
+    long getEncodeSlowPathCount();
+
+    double getEncodeFastPathRatio();
+
+    double getOutputLengthMean();
+
+    long getOutputLengthP50();
+
+    long getOutputLengthP99();
+
+    long getOutputLengthMax();
+
+    /**
+     * Resets all counters and histograms
+     */
+    void reset();
+
+}
@@ -4,8 +4,6 @@ import java.util.Optional;
 
 import static com.github.hal4j.uritemplate.ExpansionBehavior.expand;
 import static com.github.hal4j.uritemplate.ExpansionBehavior.expandAs;
-import static java.util.Optional.empty;
-import static java.util.Optional.of;
 
 public enum URITemplateOperator {
 
@@ -23,6 +21,16 @@ public enum URITemplateOperator {
      */
     NAMESPACE(':', expandAs(':').allowReserved());
 
+    private static final URITemplateOperator[] BY_CHAR = new URITemplateOperator[0x80];
+
+    static {
+        for (URITemplateOperator operator : values()) {
+            if (operator.operatorChar != null) {
+                BY_CHAR[operator.operatorChar] = operator;
+            }
+        }
+    }
+
     private final Character operatorChar;
     private final ExpansionBehavior behavior;
     private final boolean hierarchical;
@@ -54,12 +62,16 @@ public enum URITemplateOperator {
     }
 
     public static Optional<URITemplateOperator> valueOf(char c) {
-        for (URITemplateOperator modifier : values()) {
-            if (modifier.operatorChar != null && modifier.operatorChar == c) {
-                return of(modifier);
-            }
-        }
-        return empty();
+        return Optional.ofNullable(forChar(c));
+    }
+
+    /**
+     * Table lookup of the operator
+     * @param c the operator character
+     * @return operator denoted by given character or <code>null</code> if the character is not an operator
+     */
+    static URITemplateOperator forChar(char c) {
+        return c < BY_CHAR.length ? BY_CHAR[c] : null;
     }
 
     public boolean isHierarchical() {
@@ -1,5 +1,7 @@
 package com.github.hal4j.uritemplate;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 public class URITemplateParser {
@@ -22,36 +24,31 @@ public class URITemplateParser {
         if (value == null) {
             throw new NullPointerException("value");
         }
-        StringBuilder current = new StringBuilder();
+        int start = 0;
         // control flags
         boolean main = true;
         for (int i = 0; i < value.length(); i++) {
             char c = value.charAt(i);
-            switch (c) {
-                case '{':
-                    if (!main) {
-                        listener.onSyntaxError(value, i);
-                    }
-                    listener.onTextFragment(current.toString());
-                    current.setLength(0);
-                    main = false;
-                    break;
-                case '}':
-                    if (main) {
-                        listener.onSyntaxError(value, i);
-                    }
-                    listener.onVariable(URITemplateVariable.parse(current.toString()));
-                    current.setLength(0);
-                    main = true;
-                    break;
-                default:
-                    current.append(c);
+            if (c == '{') {
+                if (!main) {
+                    listener.onSyntaxError(value, i);
+                }
+                listener.onTextFragment(value.substring(start, i));
+                start = i + 1;
+                main = false;
+            } else if (c == '}') {
+                if (main) {
+                    listener.onSyntaxError(value, i);
+                }
+                listener.onVariable(URITemplateVariable.parse(value, start, i));
+                start = i + 1;
+                main = true;
             }
         }
         if (!main) {
             listener.onSyntaxError(value, value.length() - 1);
         } else {
-            listener.onTextFragment(current.toString());
+            listener.onTextFragment(value.substring(start));
         }
         listener.onCompleted();
     }
@@ -59,55 +56,53 @@ public class URITemplateParser {
     public static String parseAndExpand(String value,
                                         boolean partial,
                                         ParamHolder substitutions) {
+        return URITemplateEngine.defaultEngine().compile(value).expand(substitutions, partial);
+    }
+
+    /**
+     * Parses given template into a sequence of literal segments and expressions that can be expanded
+     * multiple times without repeated parsing. The result is bound to the default engine, but not cached:
+     * use {@link URITemplateEngine#compile(String)} to obtain cached instances.
+     * @param value the template string
+     * @return compiled template
+     * @throws URITemplateSyntaxException if the template is malformed
+     */
+    public static CompiledURITemplate compile(String value) {
+        return compile(value, URITemplateEngine.defaultEngine());
+    }
+
+    static CompiledURITemplate compile(String value, URITemplateEngine engine) {
         if (value == null) {
             throw new NullPointerException("value");
         }
-        StringBuilder result = new StringBuilder();
-        StringBuilder template = new StringBuilder();
-        // control flags
-        boolean main = true;
-        boolean resolve = false;
+        List<String> literals = new ArrayList<>();
+        List<URITemplateVariable> expressions = new ArrayList<>();
+        int start = 0;
+        int open = -1;
         for (int i = 0; i < value.length(); i++) {
             char c = value.charAt(i);
-            switch (c) {
-                case '{':
-                    if (!main) {
-                        throw new URITemplateSyntaxException(value);
-                    }
-                    main = false;
-                    break;
-                case '}':
-                    if (main) {
-                        throw new URITemplateSyntaxException(value);
-                    }
-                    resolve = true;
-                    break;
-            }
-            if (main) {
-                result.append(c);
-            } else {
-                template.append(c);
-            }
-            if (resolve) {
-                String tplCode = template.substring(1, template.length() - 1);
-                if (tplCode.isEmpty()) {
+            if (c == '{') {
+                if (open >= 0) {
                     throw new URITemplateSyntaxException(value);
                 }
-                resolveTemplate(value, partial, tplCode, substitutions, result);
-                template.setLength(0);
-                resolve = false;
-                main = true;
+                literals.add(value.substring(start, i));
+                open = i;
+            } else if (c == '}') {
+                if (open < 0 || i == open + 1) {
+                    throw new URITemplateSyntaxException(value);
+                }
+                expressions.add(URITemplateVariable.parse(value, open + 1, i));
+                open = -1;
+                start = i + 1;
             }
         }
-        if (!main) {
+        if (open >= 0) {
             throw new URITemplateSyntaxException(value);
         }
-        return result.toString();
-    }
-
-    private static void resolveTemplate(String value, boolean partial, String tpl, ParamHolder substitutions, StringBuilder result) {
-        URITemplateVariable template = URITemplateVariable.parse(tpl);
-        template.expandTo(substitutions, partial, result);
+        literals.add(value.substring(start));
+        return new CompiledURITemplate(engine, value,
+                literals.toArray(new String[0]),
+                expressions.toArray(new URITemplateVariable[0]));
     }
 
 }
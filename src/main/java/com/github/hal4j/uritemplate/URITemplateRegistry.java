@@ -0,0 +1,580 @@
+package com.github.hal4j.uritemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Immutable set of named templates compiled eagerly, e.g. at application startup, so that malformed templates
+ * fail fast instead of on first use and no template is parsed on the request path.
+ * <p>
+ * Templates are loaded from properties files (<code>name=template</code>), JSON lines files
+ * (<code>{"name": "...", "template": "..."}</code> per line), binary snapshots written by
+ * {@link #writeSnapshot(Path)} or added one by one, then compiled in parallel
+ * on a fork-join pool when the registry is built. All syntax errors, malformed lines and duplicate names are
+ * reported together by a single {@link URITemplateRegistryException}. Templates are compiled bypassing the cache
+ * of the engine, since the registry itself keeps them.
+ * </p>
+ * <pre>
+ * URITemplateRegistry links = URITemplateRegistry.builder()
+ *         .properties(Paths.get("links.properties"))
+ *         .build();
+ * String uri = links.get("order").expand(params, false);
+ * </pre>
+ * Lookups are reads of a presized hash map that is never modified after construction,
+ * so registries are safe to share between threads.
+ */
+public final class URITemplateRegistry {
+
+    /**
+     * The number of templates compiled in one fork-join task
+     */
+    private static final int CHUNK = 64;
+
+    private final Map<String, CompiledURITemplate> templates;
+
+    private URITemplateRegistry(Map<String, CompiledURITemplate> templates) {
+        this.templates = templates;
+    }
+
+    /**
+     * Creates new builder of the registry
+     * @return new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns compiled template by name
+     * @param name the name of the template
+     * @return the template or <code>null</code> if there is no template with given name
+     */
+    public CompiledURITemplate get(String name) {
+        return templates.get(name);
+    }
+
+    /**
+     * Returns template by name
+     * @param name the name of the template
+     * @return the template
+     * @throws IllegalArgumentException if there is no template with given name
+     */
+    public URITemplate template(String name) {
+        CompiledURITemplate compiled = templates.get(name);
+        if (compiled == null) throw new IllegalArgumentException("Unknown template: " + name);
+        return new URITemplate(compiled);
+    }
+
+    /**
+     * @param name the name of the template
+     * @return <code>true</code> if this registry contains the template with given name
+     */
+    public boolean contains(String name) {
+        return templates.containsKey(name);
+    }
+
+    /**
+     * @return unmodifiable set of the names of the templates
+     */
+    public Set<String> names() {
+        return templates.keySet();
+    }
+
+    /**
+     * @return the number of templates in this registry
+     */
+    public int size() {
+        return templates.size();
+    }
+
+    /**
+     * Writes binary snapshot of the compiled templates, e.g. at build time, to be loaded by
+     * {@link Builder#snapshot(Path)} on startup without parsing the templates again
+     * @param file the file to write to, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        TemplateSnapshot.write(templates, file);
+    }
+
+    @Override
+    public String toString() {
+        return "URITemplateRegistry{size=" + size() + '}';
+    }
+
+    /**
+     * Builder collecting the templates of the registry
+     */
+    public static final class Builder {
+
+        private URITemplateEngine engine = URITemplateEngine.defaultEngine();
+
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        private final List<Entry> entries = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Set the engine used to compile the templates
+         * @param engine the engine
+         * @return this
+         */
+        public Builder engine(URITemplateEngine engine) {
+            if (engine == null) throw new NullPointerException("engine");
+            this.engine = engine;
+            return this;
+        }
+
+        /**
+         * Set the pool compiling the templates, by default the common pool
+         * @param pool the fork-join pool
+         * @return this
+         */
+        public Builder pool(ForkJoinPool pool) {
+            if (pool == null) throw new NullPointerException("pool");
+            this.pool = pool;
+            return this;
+        }
+
+        /**
+         * Add a template
+         * @param name the name of the template
+         * @param template the template string
+         * @return this
+         */
+        public Builder template(String name, String template) {
+            entries.add(new Entry("<template>", name, template, null));
+            return this;
+        }
+
+        /**
+         * Add the templates from a properties file in UTF-8
+         * @param file the file
+         * @return this
+         * @throws IOException if the file cannot be read
+         */
+        public Builder properties(Path file) throws IOException {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                return properties(file.toString(), reader);
+            }
+        }
+
+        /**
+         * Add the templates in the format of {@link java.util.Properties#load(Reader)}, in the order of the lines.
+         * Unlike properties, repeated names are not overridden, but reported as duplicates, and malformed
+         * escape sequences are reported together with invalid templates when the registry is built.
+         * @param source the name of the source used in error messages
+         * @param reader the reader, not closed by this method
+         * @return this
+         * @throws IOException if the reader fails
+         */
+        public Builder properties(String source, Reader reader) throws IOException {
+            BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+            String line;
+            int number = 0;
+            while ((line = lines.readLine()) != null) {
+                number++;
+                String location = source + ':' + number;
+                StringBuilder logical = new StringBuilder(PropertiesLine.stripLeading(line));
+                if (logical.length() == 0 || logical.charAt(0) == '#' || logical.charAt(0) == '!') continue;
+                while (PropertiesLine.isContinued(logical)) {
+                    logical.setLength(logical.length() - 1);
+                    if ((line = lines.readLine()) == null) break;
+                    number++;
+                    logical.append(PropertiesLine.stripLeading(line));
+                }
+                try {
+                    String[] property = PropertiesLine.parse(logical);
+                    entries.add(new Entry(location, property[0], property[1], null));
+                } catch (IllegalArgumentException e) {
+                    entries.add(new Entry(location, null, null, e));
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Add the templates from a JSON lines file in UTF-8
+         * @param file the file
+         * @return this
+         * @throws IOException if the file cannot be read
+         * @see #jsonLines(String, Reader)
+         */
+        public Builder jsonLines(Path file) throws IOException {
+            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                return jsonLines(file.toString(), reader);
+            }
+        }
+
+        /**
+         * Add the templates from JSON lines: every non-blank line is an object with string members
+         * <code>name</code> and <code>template</code>, other members are ignored.
+         * Malformed lines are reported when the registry is built together with invalid templates.
+         * @param source the name of the source used in error messages
+         * @param reader the reader, not closed by this method
+         * @return this
+         * @throws IOException if the reader fails
+         */
+        public Builder jsonLines(String source, Reader reader) throws IOException {
+            BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+            String line;
+            int number = 0;
+            while ((line = lines.readLine()) != null) {
+                number++;
+                if (line.trim().isEmpty()) continue;
+                String location = source + ':' + number;
+                try {
+                    Map<String, String> members = JsonObject.parse(line);
+                    entries.add(new Entry(location, members.get("name"), members.get("template"), null));
+                } catch (IllegalArgumentException e) {
+                    entries.add(new Entry(location, null, null, e));
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Add the templates from a snapshot written by {@link URITemplateRegistry#writeSnapshot(Path)}.
+         * The file is memory-mapped and the templates are read in compiled form without parsing,
+         * bound to the engine set so far.
+         * @param file the snapshot file
+         * @return this
+         * @throws IOException if the file cannot be read or is not a valid snapshot
+         */
+        public Builder snapshot(Path file) throws IOException {
+            String source = file.toString();
+            TemplateSnapshot.read(file, engine, (name, compiled) -> entries.add(new Entry(source, name, compiled)));
+            return this;
+        }
+
+        /**
+         * Compiles all templates in parallel and builds the registry
+         * @return new registry
+         * @throws URITemplateRegistryException if any entry is invalid
+         */
+        public URITemplateRegistry build() {
+            Entry[] all = entries.toArray(new Entry[0]);
+            pool.invoke(new CompileTask(engine, all, 0, all.length));
+            List<String> errors = new ArrayList<>();
+            List<Throwable> causes = new ArrayList<>();
+            Map<String, CompiledURITemplate> templates = new HashMap<>((int) (all.length / 0.75f) + 1);
+            Map<String, String> sources = new HashMap<>();
+            for (Entry entry : all) {
+                String error = null;
+                if (entry.failure != null) {
+                    error = entry.failure.getMessage();
+                    causes.add(entry.failure);
+                } else if (sources.containsKey(entry.name)) {
+                    error = "duplicate name " + entry.name + ", first defined in " + sources.get(entry.name);
+                } else {
+                    templates.put(entry.name, entry.compiled);
+                    sources.put(entry.name, entry.source);
+                }
+                if (error != null) {
+                    errors.add(entry.source + (entry.name != null ? " [" + entry.name + "]: " : ": ") + error);
+                }
+            }
+            if (!errors.isEmpty()) throw new URITemplateRegistryException(errors, causes);
+            return new URITemplateRegistry(Collections.unmodifiableMap(templates));
+        }
+    }
+
+    private static final class Entry {
+
+        final String source;
+
+        final String name;
+
+        final String template;
+
+        // written by the compile tasks, read after the pool has joined them
+        RuntimeException failure;
+
+        CompiledURITemplate compiled;
+
+        Entry(String source, String name, String template, RuntimeException failure) {
+            this.source = source;
+            this.name = name;
+            this.template = template;
+            this.failure = failure;
+        }
+
+        Entry(String source, String name, CompiledURITemplate compiled) {
+            this(source, name, compiled.value(), null);
+            this.compiled = compiled;
+        }
+
+        void compile(URITemplateEngine engine) {
+            if (failure != null || compiled != null) return;
+            if (name == null || name.isEmpty()) {
+                failure = new IllegalArgumentException("Template name is not specified");
+            } else if (template == null) {
+                failure = new IllegalArgumentException("Template is not specified");
+            } else {
+                try {
+                    compiled = engine.compileUncached(template);
+                } catch (IllegalArgumentException e) {
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Compiles a range of entries, splitting it in halves until it is small enough
+     */
+    private static final class CompileTask extends RecursiveAction {
+
+        private final URITemplateEngine engine;
+
+        private final Entry[] entries;
+
+        private final int from;
+
+        private final int to;
+
+        CompileTask(URITemplateEngine engine, Entry[] entries, int from, int to) {
+            this.engine = engine;
+            this.entries = entries;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK) {
+                for (int i = from; i < to; i++) {
+                    entries[i].compile(engine);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new CompileTask(engine, entries, from, middle), new CompileTask(engine, entries, middle, to));
+        }
+    }
+
+    /**
+     * Returns the value of 4 hexadecimal digits at given position
+     * @return the value or -1 if the characters are not hexadecimal digits
+     */
+    private static int hex4(CharSequence s, int pos) {
+        if (pos + 4 > s.length()) return -1;
+        int value = 0;
+        for (int i = pos; i < pos + 4; i++) {
+            int digit = Character.digit(s.charAt(i), 16);
+            if (digit < 0 || s.charAt(i) >= 0x80) return -1;
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    /**
+     * Parser of a logical line of a properties file, see {@link java.util.Properties#load(Reader)}
+     */
+    private static final class PropertiesLine {
+
+        private PropertiesLine() {
+        }
+
+        static String stripLeading(String line) {
+            int i = 0;
+            while (i < line.length() && isWhitespace(line.charAt(i))) i++;
+            return line.substring(i);
+        }
+
+        /**
+         * @return <code>true</code> if the line ends with odd number of backslashes
+         */
+        static boolean isContinued(CharSequence line) {
+            int count = 0;
+            for (int i = line.length() - 1; i >= 0 && line.charAt(i) == '\\'; i--) count++;
+            return count % 2 == 1;
+        }
+
+        /**
+         * @return the unescaped key and value
+         */
+        static String[] parse(CharSequence line) {
+            int length = line.length();
+            int keyEnd = 0;
+            while (keyEnd < length) {
+                char c = line.charAt(keyEnd);
+                if (c == '\\') {
+                    keyEnd += 2;
+                    continue;
+                }
+                if (c == '=' || c == ':' || isWhitespace(c)) break;
+                keyEnd++;
+            }
+            keyEnd = Math.min(keyEnd, length);
+            int valueStart = keyEnd;
+            while (valueStart < length && isWhitespace(line.charAt(valueStart))) valueStart++;
+            if (valueStart < length && (line.charAt(valueStart) == '=' || line.charAt(valueStart) == ':')) {
+                valueStart++;
+                while (valueStart < length && isWhitespace(line.charAt(valueStart))) valueStart++;
+            }
+            return new String[] {unescape(line, 0, keyEnd), unescape(line, valueStart, length)};
+        }
+
+        private static String unescape(CharSequence line, int from, int to) {
+            StringBuilder result = new StringBuilder(to - from);
+            int i = from;
+            while (i < to) {
+                char c = line.charAt(i++);
+                if (c != '\\' || i == to) {
+                    result.append(c);
+                    continue;
+                }
+                char escaped = line.charAt(i++);
+                switch (escaped) {
+                    case 't': result.append('\t'); break;
+                    case 'n': result.append('\n'); break;
+                    case 'r': result.append('\r'); break;
+                    case 'f': result.append('\f'); break;
+                    case 'u':
+                        int code = i + 4 <= to ? hex4(line, i) : -1;
+                        if (code < 0) {
+                            throw new IllegalArgumentException("Malformed properties: expected 4 hex digits at column " + (i + 1));
+                        }
+                        result.append((char) code);
+                        i += 4;
+                        break;
+                    default:
+                        result.append(escaped);
+                }
+            }
+            return result.toString();
+        }
+
+        private static boolean isWhitespace(char c) {
+            return c == ' ' || c == '\t' || c == '\f';
+        }
+    }
+
+    /**
+     * Parser of a single-line JSON object, keeping its string members
+     */
+    private static final class JsonObject {
+
+        private final String line;
+
+        private int pos;
+
+        private JsonObject(String line) {
+            this.line = line;
+        }
+
+        static Map<String, String> parse(String line) {
+            return new JsonObject(line).object();
+        }
+
+        private Map<String, String> object() {
+            Map<String, String> members = new LinkedHashMap<>();
+            expect('{');
+            if (peek() == '}') {
+                pos++;
+            } else {
+                do {
+                    String key = string();
+                    expect(':');
+                    if (peek() == '"') {
+                        members.put(key, string());
+                    } else {
+                        skipValue();
+                    }
+                } while (next(',', '}') == ',');
+            }
+            if (peek() != 0) throw error("end of line");
+            return members;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder result = new StringBuilder();
+            while (pos < line.length()) {
+                char c = line.charAt(pos++);
+                if (c == '"') return result.toString();
+                if (c != '\\') {
+                    result.append(c);
+                    continue;
+                }
+                if (pos >= line.length()) break;
+                char escaped = line.charAt(pos++);
+                switch (escaped) {
+                    case 'b': result.append('\b'); break;
+                    case 'f': result.append('\f'); break;
+                    case 'n': result.append('\n'); break;
+                    case 'r': result.append('\r'); break;
+                    case 't': result.append('\t'); break;
+                    case 'u':
+                        int code = hex4(line, pos);
+                        if (code < 0) throw error("4 hex digits");
+                        result.append((char) code);
+                        pos += 4;
+                        break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        result.append(escaped);
+                        break;
+                    default:
+                        throw error("escape sequence");
+                }
+            }
+            throw error("closing quote");
+        }
+
+        private void skipValue() {
+            // numbers, literals and nested structures are not used by the registry
+            int depth = 0;
+            while (pos < line.length()) {
+                char c = line.charAt(pos);
+                if (c == '"') {
+                    string();
+                    continue;
+                }
+                if (depth == 0 && (c == ',' || c == '}')) return;
+                if (c == '{' || c == '[') depth++;
+                if (c == '}' || c == ']') depth--;
+                pos++;
+            }
+        }
+
+        private char peek() {
+            while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) pos++;
+            return pos < line.length() ? line.charAt(pos) : 0;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) throw error("'" + c + "'");
+            pos++;
+        }
+
+        private char next(char first, char second) {
+            char c = peek();
+            if (c != first && c != second) throw error("'" + first + "' or '" + second + "'");
+            pos++;
+            return c;
+        }
+
+        private IllegalArgumentException error(String expected) {
+            return new IllegalArgumentException("Malformed JSON: expected " + expected + " at column " + (pos + 1));
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.github.hal4j.uritemplate;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when {@link URITemplateRegistry} cannot be built, reporting all invalid entries at once.
+ * The original exception of every entry, if any, is attached as suppressed exception.
+ */
+public class URITemplateRegistryException extends IllegalArgumentException {
+
+    private final List<String> errors;
+
+    URITemplateRegistryException(List<String> errors, List<? extends Throwable> causes) {
+        super(errors.size() + " invalid template(s):\n  " + String.join("\n  ", errors));
+        this.errors = Collections.unmodifiableList(errors);
+        for (Throwable cause : causes) {
+            addSuppressed(cause);
+        }
+    }
+
+    /**
+     * @return descriptions of the invalid entries in the order they were added, each prefixed with its source
+     */
+    public List<String> errors() {
+        return errors;
+    }
+
+}
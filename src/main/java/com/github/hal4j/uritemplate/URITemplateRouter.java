@@ -0,0 +1,547 @@
+package com.github.hal4j.uritemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.github.hal4j.uritemplate.URITemplateMatcher.NONE;
+
+/**
+ * Dispatches concrete URIs to the matching templates of a large set of routes.
+ * <p>
+ * Templates are compiled into a prefix tree: literal segments are stored on radix-compressed edges
+ * shared by all templates with the same prefix, and every distinct expression (e.g. <code>{id}</code>,
+ * <code>{/path*}</code> or <code>{?page,size}</code>) following a common prefix is a single branch of the tree.
+ * Lookup walks the tree along the URI, so its cost depends on the length of the URI and the number
+ * of alternatives at the branching points, but not on the total number of routes. Expressions may have to be
+ * retried with longer values, but every node is tried at most once per position of the URI, so that
+ * URIs crafted to cause backtracking cannot make the lookup exponential.
+ * </p>
+ * <p>
+ * When several routes match the same URI, the most specific one wins: at every branching point literal segments
+ * are tried before expressions, simple expressions before query expressions, exploded and reserved expansions
+ * are tried last, and expressions capture the shortest value after which the rest of the route matches.
+ * Every template can be registered only once.
+ * The results of recent lookups are kept in a small exact-match cache.
+ * </p>
+ * Routers are immutable and can be shared between threads.
+ * @param <T> the type of the targets associated with templates
+ */
+public final class URITemplateRouter<T> {
+
+    private final Node<T> root;
+
+    private final int size;
+
+    private final int depth;
+
+    // direct-mapped cache of recent lookups; racy updates are harmless, since entries are immutable
+    private final CacheEntry<T>[] cache;
+
+    /**
+     * Creates new builder of the router compiling templates with the {@link URITemplateEngine#defaultEngine() default engine}
+     * @param <T> the type of the targets
+     * @return new builder
+     */
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private URITemplateRouter(Builder<T> builder) {
+        this.root = builder.root;
+        this.size = builder.size;
+        this.depth = builder.depth;
+        int cacheSize = 1;
+        while (cacheSize < builder.cacheSize) cacheSize <<= 1;
+        this.cache = builder.cacheSize > 0 ? new CacheEntry[cacheSize] : null;
+        root.freeze();
+    }
+
+    /**
+     * @return the number of routes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the route matching given URI
+     * @param uri the concrete URI
+     * @return the most specific matching route with captured values or <code>null</code> if no route matches
+     */
+    public Route<T> route(CharSequence uri) {
+        CacheEntry<T>[] cache = this.cache;
+        int index = 0;
+        if (cache != null && uri instanceof String) {
+            index = uri.hashCode() & (cache.length - 1);
+            CacheEntry<T> entry = cache[index];
+            if (entry != null && entry.uri.equals(uri)) {
+                return entry.endpoint == null ? null : entry.endpoint.route(uri, entry.spans);
+            }
+        }
+        Lookup lookup = new Lookup(uri, depth);
+        Endpoint<T> endpoint = root.find(lookup, 0, 0);
+        int[] spans = lookup.spans;
+        if (cache != null && uri instanceof String) {
+            cache[index] = new CacheEntry<>((String) uri, endpoint, spans);
+        }
+        return endpoint == null ? null : endpoint.route(uri, spans);
+    }
+
+    /**
+     * State of a single lookup: the positions of the captured values and the nodes that failed to match
+     */
+    private static final class Lookup {
+
+        final CharSequence uri;
+
+        final int end;
+
+        final int[] spans;
+
+        // keys of (node, position) pairs known to have no match, created on the first failure
+        private Set<Long> failures;
+
+        // by node following a simple expression: the run of value characters matched last by the expression
+        // as {start, end, the first position known to have no match}, created on the first use
+        private Map<Integer, int[]> runs;
+
+        Lookup(CharSequence uri, int depth) {
+            this.uri = uri;
+            this.end = uri.length();
+            this.spans = new int[2 * depth];
+        }
+
+        boolean failed(int node, int pos) {
+            return failures != null && failures.contains(key(node, pos));
+        }
+
+        void fail(int node, int pos) {
+            if (failures == null) failures = new HashSet<>();
+            failures.add(key(node, pos));
+        }
+
+        /**
+         * Returns the run of value characters matched by a simple expression starting at given position.
+         * Every position inside a run, but the last one, starts a run with the same end.
+         */
+        int[] run(int node, int pos, URITemplateMatcher.Group group) {
+            if (runs == null) runs = new HashMap<>();
+            int[] run = runs.get(node);
+            if (run != null && run[0] <= pos && pos < run[1] && (group.first == NONE || uri.charAt(pos) == group.first)) {
+                return run;
+            }
+            int max = group.match(uri, pos, end, NONE, null);
+            if (run != null && run[1] == max) {
+                run[0] = Math.min(run[0], pos);
+            } else {
+                run = new int[]{pos, max, max + 1};
+                runs.put(node, run);
+            }
+            return run;
+        }
+
+        private static long key(int node, int pos) {
+            return ((long) node << 32) | pos;
+        }
+    }
+
+    /**
+     * Result of the lookup: the matched template, its target and the values captured from the URI
+     * @param <T> the type of the target
+     */
+    public static final class Route<T> {
+
+        private final CompiledURITemplate template;
+
+        private final T target;
+
+        private final URITemplateMatch params;
+
+        Route(CompiledURITemplate template, T target, URITemplateMatch params) {
+            this.template = template;
+            this.target = target;
+            this.params = params;
+        }
+
+        public CompiledURITemplate template() {
+            return template;
+        }
+
+        public T target() {
+            return target;
+        }
+
+        /**
+         * @return the values of the template variables captured from the URI
+         */
+        public URITemplateMatch params() {
+            return params;
+        }
+
+        @Override
+        public String toString() {
+            return template + " -> " + target + ' ' + params.toMap();
+        }
+    }
+
+    /**
+     * Builder of the router
+     * @param <T> the type of the targets
+     */
+    public static final class Builder<T> {
+
+        private URITemplateEngine engine = URITemplateEngine.defaultEngine();
+
+        private int cacheSize = 256;
+
+        private final Node<T> root = new Node<>();
+
+        private int size;
+
+        private int depth;
+
+        private boolean built;
+
+        private Builder() {
+        }
+
+        /**
+         * Set the engine used to compile the templates. Routes already added are not recompiled.
+         * @param engine the engine
+         * @return this
+         */
+        public Builder<T> engine(URITemplateEngine engine) {
+            if (engine == null) throw new NullPointerException("engine");
+            this.engine = engine;
+            return this;
+        }
+
+        /**
+         * Set the number of lookup results cached by the router
+         * @param size the cache size or 0 to disable caching
+         * @return this
+         */
+        public Builder<T> cacheSize(int size) {
+            if (size < 0) throw new IllegalArgumentException("Cache size cannot be negative: " + size);
+            this.cacheSize = size;
+            return this;
+        }
+
+        /**
+         * Add new route. Templates are compiled bypassing the cache of the engine.
+         * @param template the template string
+         * @param target the target of the route
+         * @return this
+         * @throws URITemplateSyntaxException if the template is malformed
+         * @throws IllegalArgumentException if the same template is already registered
+         */
+        public Builder<T> route(String template, T target) {
+            if (built) throw new IllegalStateException("Router is already built");
+            CompiledURITemplate compiled = engine.compileUncached(template);
+            Endpoint<T> endpoint = new Endpoint<>(compiled, target);
+            String[] literals = compiled.literals();
+            URITemplateVariable[] expressions = compiled.expressions();
+            Node<T> node = root;
+            for (int i = 0; i < expressions.length; i++) {
+                node = node.literal(literals[i]).expression(expressions[i].toString(), endpoint.groups[i]);
+            }
+            node = node.literal(literals[expressions.length]);
+            if (node.endpoint != null) throw new IllegalArgumentException("Duplicate route: " + template);
+            node.endpoint = endpoint;
+            depth = Math.max(depth, expressions.length);
+            size++;
+            return this;
+        }
+
+        /**
+         * Builds the router. The builder cannot be used after this call.
+         * @return new router
+         */
+        public URITemplateRouter<T> build() {
+            if (built) throw new IllegalStateException("Router is already built");
+            built = true;
+            return new URITemplateRouter<>(this);
+        }
+    }
+
+    /**
+     * Matched template with its target
+     */
+    private static final class Endpoint<T> {
+
+        final CompiledURITemplate template;
+
+        final T target;
+
+        final URITemplateMatcher.Group[] groups;
+
+        Endpoint(CompiledURITemplate template, T target) {
+            this.template = template;
+            this.target = target;
+            URITemplateVariable[] expressions = template.expressions();
+            this.groups = new URITemplateMatcher.Group[expressions.length];
+            for (int i = 0; i < groups.length; i++) {
+                groups[i] = new URITemplateMatcher.Group(expressions[i], template.slotNameArray());
+            }
+        }
+
+        Route<T> route(CharSequence uri, int[] spans) {
+            URITemplateMatch params = new URITemplateMatch(template.slotNameArray());
+            params.reset(uri);
+            for (int i = 0; i < groups.length; i++) {
+                groups[i].match(uri, spans[2 * i], spans[2 * i + 1], NONE, params);
+            }
+            return new Route<>(template, target, params);
+        }
+    }
+
+    /**
+     * Node of the prefix tree
+     */
+    private static final class Node<T> {
+
+        // literal edges sorted by their first character
+        Edge<T>[] edges = newEdges(0);
+
+        // expression branches in the order of decreasing specificity
+        Branch<T>[] branches = newBranches(0);
+
+        // the first characters of the edges and the operators of the branches, terminating expressions
+        boolean[] stops;
+
+        Endpoint<T> endpoint;
+
+        // unique number of the node in the tree, assigned when the tree is frozen
+        int id;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <T> Edge<T>[] newEdges(int length) {
+            return new Edge[length];
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <T> Branch<T>[] newBranches(int length) {
+            return new Branch[length];
+        }
+
+        Node<T> literal(String literal) {
+            Node<T> node = this;
+            int from = 0;
+            while (from < literal.length()) {
+                char c = literal.charAt(from);
+                int index = node.indexOf(c);
+                if (index < 0) {
+                    Edge<T> edge = new Edge<>(literal.substring(from), new Node<>());
+                    node.insert(-index - 1, edge);
+                    return edge.child;
+                }
+                Edge<T> edge = node.edges[index];
+                int common = 1;
+                while (common < edge.label.length() && from + common < literal.length()
+                        && edge.label.charAt(common) == literal.charAt(from + common)) {
+                    common++;
+                }
+                if (common < edge.label.length()) {
+                    // split the edge at the end of the common prefix
+                    Node<T> middle = new Node<>();
+                    middle.insert(0, new Edge<>(edge.label.substring(common), edge.child));
+                    node.edges[index] = new Edge<>(edge.label.substring(0, common), middle);
+                    node = middle;
+                } else {
+                    node = edge.child;
+                }
+                from += common;
+            }
+            return node;
+        }
+
+        Node<T> expression(String key, URITemplateMatcher.Group group) {
+            for (Branch<T> branch : branches) {
+                if (branch.key.equals(key)) return branch.child;
+            }
+            Branch<T> branch = new Branch<>(key, group, new Node<>());
+            branches = Arrays.copyOf(branches, branches.length + 1);
+            int i = branches.length - 1;
+            while (i > 0 && compare(branches[i - 1], branch) > 0) {
+                branches[i] = branches[i - 1];
+                i--;
+            }
+            branches[i] = branch;
+            return branch.child;
+        }
+
+        private static int compare(Branch<?> a, Branch<?> b) {
+            int result = Integer.compare(a.rank, b.rank);
+            return result != 0 ? result : a.key.compareTo(b.key);
+        }
+
+        private int indexOf(char c) {
+            int low = 0;
+            int high = edges.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                char m = edges[mid].label.charAt(0);
+                if (m < c) {
+                    low = mid + 1;
+                } else if (m > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private void insert(int index, Edge<T> edge) {
+            Edge<T>[] result = newEdges(edges.length + 1);
+            System.arraycopy(edges, 0, result, 0, index);
+            result[index] = edge;
+            System.arraycopy(edges, index, result, index + 1, edges.length - index);
+            edges = result;
+        }
+
+        void freeze() {
+            List<Node<T>> pending = new ArrayList<>();
+            pending.add(this);
+            int count = 0;
+            while (!pending.isEmpty()) {
+                Node<T> node = pending.remove(pending.size() - 1);
+                node.id = count++;
+                node.stops = new boolean[0x80];
+                for (Edge<T> edge : node.edges) {
+                    char c = edge.label.charAt(0);
+                    if (c < 0x80) node.stops[c] = true;
+                    pending.add(edge.child);
+                }
+                for (Branch<T> branch : node.branches) {
+                    if (branch.group.first != NONE) node.stops[branch.group.first] = true;
+                    pending.add(branch.child);
+                }
+            }
+        }
+
+        private boolean isStop(char c) {
+            return c < 0x80 && stops[c];
+        }
+
+        Endpoint<T> find(Lookup lookup, int pos, int depth) {
+            // only nodes with expressions branch; a failure below them is remembered, since the same node
+            // may be reached at the same position again through different values of the preceding expressions
+            if (branches.length == 0) return findAt(lookup, pos, depth);
+            if (lookup.failed(id, pos)) return null;
+            Endpoint<T> found = findAt(lookup, pos, depth);
+            if (found == null) lookup.fail(id, pos);
+            return found;
+        }
+
+        private Endpoint<T> findAt(Lookup lookup, int pos, int depth) {
+            CharSequence uri = lookup.uri;
+            int end = lookup.end;
+            if (pos == end && endpoint != null) {
+                return endpoint;
+            }
+            if (pos < end) {
+                int index = indexOf(uri.charAt(pos));
+                if (index >= 0) {
+                    Edge<T> edge = edges[index];
+                    String label = edge.label;
+                    if (pos + label.length() <= end && regionMatches(uri, pos, label)) {
+                        Endpoint<T> found = edge.child.find(lookup, pos + label.length(), depth);
+                        if (found != null) return found;
+                    }
+                }
+            }
+            int[] spans = lookup.spans;
+            for (Branch<T> branch : branches) {
+                Node<T> child = branch.child;
+                // the value of a simple expression may end anywhere in the run of value characters, and the run
+                // ends at the same position for all start positions in it: its tail tried before is skipped
+                int[] run = branch.simple ? lookup.run(child.id, pos, branch.group) : null;
+                int max = run != null ? run[1] : branch.group.match(uri, pos, end, NONE, null);
+                int last = run != null ? run[2] - 1 : max;
+                for (int p = pos; p <= last; p++) {
+                    if (p < max && p > pos && !child.isStop(uri.charAt(p))) continue;
+                    if (lookup.failed(child.id, p)) continue;
+                    if (p < max && run == null && branch.group.match(uri, pos, p, NONE, null) != p) continue;
+                    spans[2 * depth] = pos;
+                    spans[2 * depth + 1] = p;
+                    Endpoint<T> found = child.find(lookup, p, depth + 1);
+                    if (found != null) return found;
+                }
+                if (run != null && pos < run[2]) run[2] = pos;
+            }
+            return null;
+        }
+
+        private static boolean regionMatches(CharSequence uri, int pos, String label) {
+            for (int i = 1; i < label.length(); i++) {
+                if (uri.charAt(pos + i) != label.charAt(i)) return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class Edge<T> {
+
+        final String label;
+
+        final Node<T> child;
+
+        Edge(String label, Node<T> child) {
+            this.label = label;
+            this.child = child;
+        }
+    }
+
+    private static final class Branch<T> {
+
+        final String key;
+
+        final URITemplateMatcher.Group group;
+
+        final int rank;
+
+        // single unnamed variable: every prefix of the matched value is a valid value as well
+        final boolean simple;
+
+        final Node<T> child;
+
+        Branch(String key, URITemplateMatcher.Group group, Node<T> child) {
+            this.key = key;
+            this.group = group;
+            this.child = child;
+            this.rank = rank(group);
+            this.simple = !group.query && !group.named && group.slots.length == 1 && group.prefixLength[0] < 0;
+        }
+
+        private static int rank(URITemplateMatcher.Group group) {
+            if (group.encoder == PercentEncoder.LITERAL) return 3;
+            for (boolean explode : group.explode) {
+                if (explode) return 2;
+            }
+            return group.query ? 1 : 0;
+        }
+    }
+
+    private static final class CacheEntry<T> {
+
+        final String uri;
+
+        final Endpoint<T> endpoint;
+
+        final int[] spans;
+
+        CacheEntry(String uri, Endpoint<T> endpoint, int[] spans) {
+            this.uri = uri;
+            this.endpoint = endpoint;
+            this.spans = spans;
+        }
+    }
+
+}
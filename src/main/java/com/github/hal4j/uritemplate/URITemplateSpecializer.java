@@ -0,0 +1,242 @@
+package com.github.hal4j.uritemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds specialized expansion code for a compiled template. Every literal segment, operator prefix and separator
+ * and the choice of encoder and the variable slots are resolved once and captured as constants in small expander objects,
+ * so that full expansion of scalar values is a straight sequence of appends without checking
+ * the flags of {@link ExpansionBehavior}. Collections and maps are delegated to the generic algorithm.
+ */
+final class URITemplateSpecializer {
+
+    private URITemplateSpecializer() {
+    }
+
+    interface Segment {
+        void expandTo(ParamHolder params, Appendable result) throws IOException;
+    }
+
+    static Segment[] specialize(String[] literals, URITemplateVariable[] expressions, String[] slotNames) {
+        return specialize(literals, expressions, slotNames, null);
+    }
+
+    /**
+     * Builds specialized code with the variables of given constants folded into it: expressions consisting
+     * only of constants are expanded into literal segments, and constant components of other expressions are
+     * pre-encoded, keeping only the choice between the operator prefix and the separator for the expansion time.
+     * @param literals the literal segments of the template
+     * @param expressions the expressions of the template
+     * @param slotNames the slot table of the template, not including constants
+     * @param constants the constant values or <code>null</code> if there are no constants
+     * @return the specialized segments
+     */
+    static Segment[] specialize(String[] literals, URITemplateVariable[] expressions, String[] slotNames,
+                                ParamHolder constants) {
+        List<Segment> segments = new ArrayList<>(literals.length + expressions.length);
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < expressions.length; i++) {
+            literal.append(literals[i]);
+            URITemplateVariable expression = expressions[i];
+            if (constants != null && isConstant(expression, constants)) {
+                expression.expandTo(constants, literal);
+                continue;
+            }
+            if (literal.length() > 0) segments.add(new Literal(literal.toString()));
+            literal.setLength(0);
+            segments.add(specialize(expression, slotNames, constants));
+        }
+        literal.append(literals[expressions.length]);
+        if (literal.length() > 0) segments.add(new Literal(literal.toString()));
+        return segments.toArray(new Segment[0]);
+    }
+
+    private static boolean isConstant(URITemplateVariable expression, ParamHolder constants) {
+        for (URIVarComponent component : expression.components()) {
+            if (!constants.containsKey(component.name())) return false;
+        }
+        return true;
+    }
+
+    private static Segment specialize(URITemplateVariable expression, String[] slotNames, ParamHolder constants) {
+        URITemplateOperator operator = expression.modifier().orElse(URITemplateOperator.NONE);
+        List<Part> parts = new ArrayList<>();
+        for (URIVarComponent component : expression.components()) {
+            if (constants != null && constants.containsKey(component.name())) {
+                StringBuilder first = new StringBuilder();
+                StringBuilder next = new StringBuilder();
+                // undefined constants, including empty lists and maps, are omitted
+                if (component.expandTo(constants, first, true, operator)
+                        && component.expandTo(constants, next, false, operator)) {
+                    parts.add(new ConstantComponent(first.toString(), next.toString()));
+                }
+            } else {
+                parts.add(new Component(component, slot(component.name(), slotNames), slotNames, operator.behavior()));
+            }
+        }
+        return parts.size() == 1 ? new SingleComponentExpression(parts.get(0)) : new Expression(parts.toArray(new Part[0]));
+    }
+
+    private static int slot(String name, String[] slotNames) {
+        for (int i = 0; i < slotNames.length; i++) {
+            if (slotNames[i].equals(name)) return i;
+        }
+        throw new IllegalStateException("No slot for variable " + name);
+    }
+
+    private static final class Literal implements Segment {
+
+        private final String text;
+
+        private final byte[] bytes;
+
+        Literal(String text) {
+            this.text = text;
+            this.bytes = text.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public void expandTo(ParamHolder params, Appendable result) throws IOException {
+            if (result instanceof ByteSink) {
+                ((ByteSink) result).write(bytes);
+            } else {
+                result.append(text);
+            }
+        }
+    }
+
+    private static final class SingleComponentExpression implements Segment {
+
+        private final Part component;
+
+        SingleComponentExpression(Part component) {
+            this.component = component;
+        }
+
+        @Override
+        public void expandTo(ParamHolder params, Appendable result) throws IOException {
+            component.expandTo(params, true, result);
+        }
+    }
+
+    private static final class Expression implements Segment {
+
+        private final Part[] components;
+
+        Expression(Part[] components) {
+            this.components = components;
+        }
+
+        @Override
+        public void expandTo(ParamHolder params, Appendable result) throws IOException {
+            boolean isFirst = true;
+            for (Part component : components) {
+                boolean expanded = component.expandTo(params, isFirst, result);
+                isFirst = isFirst && !expanded;
+            }
+        }
+    }
+
+    /**
+     * Expansion code of a single variable specification
+     */
+    private interface Part {
+
+        /**
+         * @return <code>true</code> if the variable is defined and has been expanded
+         */
+        boolean expandTo(ParamHolder params, boolean isFirst, Appendable result) throws IOException;
+
+    }
+
+    /**
+     * Variable with constant value: pre-encoded output after the operator prefix and after the separator
+     */
+    private static final class ConstantComponent implements Part {
+
+        private final String first;
+
+        private final String next;
+
+        ConstantComponent(String first, String next) {
+            this.first = first;
+            this.next = next;
+        }
+
+        @Override
+        public boolean expandTo(ParamHolder params, boolean isFirst, Appendable result) throws IOException {
+            result.append(isFirst ? first : next);
+            return true;
+        }
+    }
+
+    /**
+     * Variable specification with precomputed output for scalar values:
+     * operator prefix or separator, name and '=' or the empty value marker.
+     */
+    private static final class Component implements Part {
+
+        private final String name;
+
+        private final int slot;
+
+        private final int prefixLength;
+
+        private final boolean explode;
+
+        private final ExpansionBehavior behavior;
+
+        private final PercentEncoder encoder;
+
+        private final String first;
+
+        private final String firstIfEmpty;
+
+        private final String next;
+
+        private final String nextIfEmpty;
+
+        Component(URIVarComponent component, int slot, String[] slotNames, ExpansionBehavior behavior) {
+            // the name instance from the slot table allows SlotParams to verify the slot by identity
+            this.name = slotNames[slot];
+            this.slot = slot;
+            this.prefixLength = component.prefixLength().orElse(-1);
+            this.explode = component.explode();
+            this.behavior = behavior;
+            this.encoder = behavior.isReservedAllowed() ? PercentEncoder.LITERAL : PercentEncoder.DEFAULT;
+            String firstPrefix = behavior.first() != null ? String.valueOf(behavior.first()) : "";
+            String nextPrefix = String.valueOf(behavior.separator());
+            String assignment = behavior.isNamed() ? name + '=' : "";
+            String emptyAssignment = behavior.isNamed()
+                    ? (behavior.empty() != null ? name + behavior.empty() : name)
+                    : "";
+            this.first = firstPrefix + assignment;
+            this.firstIfEmpty = firstPrefix + emptyAssignment;
+            this.next = nextPrefix + assignment;
+            this.nextIfEmpty = nextPrefix + emptyAssignment;
+        }
+
+        @Override
+        public boolean expandTo(ParamHolder params, boolean isFirst, Appendable result) throws IOException {
+            Object value = params instanceof SlotBinding ? ((SlotBinding) params).get(slot, name) : params.get(name);
+            if (value == null) return false;
+            if (ExpansionBehavior.isComposite(value)) {
+                Integer prefix = prefixLength < 0 ? null : prefixLength;
+                return behavior.expand(name, value, explode, prefix, isFirst, result);
+            }
+            String s = value.toString();
+            if (s.isEmpty()) {
+                result.append(isFirst ? firstIfEmpty : nextIfEmpty);
+                return true;
+            }
+            result.append(isFirst ? first : next);
+            int end = prefixLength >= 0 && s.length() > prefixLength ? prefixLength : s.length();
+            ObservedAppendable.encode(encoder, s, 0, end, result);
+            return true;
+        }
+    }
+
+}
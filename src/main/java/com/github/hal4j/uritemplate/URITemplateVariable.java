@@ -1,13 +1,13 @@
 package com.github.hal4j.uritemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 import static com.github.hal4j.uritemplate.URITemplateOperator.*;
 import static com.github.hal4j.uritemplate.URIVarComponent.var;
 import static java.util.Arrays.asList;
-import static java.util.Arrays.stream;
 import static java.util.Collections.emptyList;
-import static java.util.stream.Collectors.toList;
 
 public class URITemplateVariable {
 
@@ -16,24 +16,45 @@ public class URITemplateVariable {
     private final List<URIVarComponent> components;
 
     public static URITemplateVariable parse(String template) {
-        if ((template.charAt(0) == '{') && (template.charAt(template.length() - 1) == '}')) {
-            template = template.substring(1, template.length() - 1);
+        int from = 0;
+        int to = template.length();
+        if (to > 1 && (template.charAt(0) == '{') && (template.charAt(to - 1) == '}')) {
+            from++;
+            to--;
         }
-        if (template.isEmpty()) {
+        return parse(template, from, to);
+    }
+
+    /**
+     * Parses the expression located in the given range of characters, excluding the braces,
+     * in a single pass without creating intermediate strings other than variable names
+     * @param source the characters containing the expression
+     * @param from the index of the first character after the opening brace
+     * @param to the index of the closing brace
+     * @return parsed expression
+     * @throws URITemplateSyntaxException if the expression is malformed
+     */
+    static URITemplateVariable parse(CharSequence source, int from, int to) {
+        if (from >= to) {
             throw new URITemplateSyntaxException("URI template cannot be empty: {}");
         }
-        Optional<URITemplateOperator> modifier = URITemplateOperator.valueOf(template.charAt(0));
-        String specs = template;
-        if (modifier.isPresent()) {
-            specs = template.substring(1);
-            if (specs.isEmpty()) {
-                throw new URITemplateSyntaxException("Name not specified: {" + modifier.get().operatorChar() + "}");
+        URITemplateOperator modifier = URITemplateOperator.forChar(source.charAt(from));
+        if (modifier != null) {
+            from++;
+            if (from == to) {
+                throw new URITemplateSyntaxException("Name not specified: {" + modifier.operatorChar() + "}");
             }
         }
-        List<URIVarComponent> components = stream(specs.split(","))
-                .map(URIVarComponent::parse)
-                .collect(toList());
-        return new URITemplateVariable(modifier.orElse(NONE), components);
+        List<URIVarComponent> components = new ArrayList<>(2);
+        int start = from;
+        for (int i = from; i < to; i++) {
+            if (source.charAt(i) == ',') {
+                components.add(URIVarComponent.parse(source, start, i));
+                start = i + 1;
+            }
+        }
+        components.add(URIVarComponent.parse(source, start, to));
+        return new URITemplateVariable(modifier != null ? modifier : NONE, components);
     }
 
     public static URITemplateVariable template(String name) {
@@ -89,42 +110,98 @@ public class URITemplateVariable {
         if (partial) {
             expandPartialTo(substitutions, result);
         } else {
-            boolean isFirst = true;
-            for (URIVarComponent component : this.components) {
-                boolean expanded = component.expandTo(substitutions, result, isFirst, modifier);
-                isFirst = isFirst && !expanded;
-            }
+            expandTo(substitutions, result);
+        }
+    }
+
+    /**
+     * Fully expand this variable, writing the result to given string builder
+     * @param substitutions the parameter holder
+     * @param result the string builder to append the result to
+     */
+    public void expandTo(ParamHolder substitutions, StringBuilder result) {
+        try {
+            expandTo(substitutions, (Appendable) result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // unreachable: StringBuilder does not throw
+        }
+    }
+
+    /**
+     * Fully expand this variable, writing the result directly to given character sink
+     * @param substitutions the parameter holder
+     * @param result the sink to append the result to
+     * @throws IOException if the sink fails
+     */
+    public void expandTo(ParamHolder substitutions, Appendable result) throws IOException {
+        boolean isFirst = true;
+        for (URIVarComponent component : this.components) {
+            boolean expanded = component.expandTo(substitutions, result, isFirst, modifier);
+            isFirst = isFirst && !expanded;
         }
     }
 
     private void expandPartialTo(ParamHolder substitutions, StringBuilder result) {
-        int pos;
+        expandPartialTo(substitutions, new PartialExpansion() {
+            @Override
+            public void text(CharSequence text) {
+                result.append(text);
+            }
+
+            @Override
+            public void expression(URITemplateVariable expression) {
+                result.append(expression);
+            }
+        });
+    }
+
+    /**
+     * Partially expand this variable, reporting the expanded text and the residual expressions
+     * in the order of their occurrence
+     * @param substitutions the parameter holder
+     * @param result the receiver of the expansion result
+     */
+    void expandPartialTo(ParamHolder substitutions, PartialExpansion result) {
         boolean isFirst = true;
         URITemplateOperator modifier = this.modifier;
         boolean flush = modifier.isHierarchical();
         List<URIVarComponent> unresolved = new ArrayList<>();
+        StringBuilder expansion = new StringBuilder();
         for (URIVarComponent component : this.components) {
             if (substitutions.ignore(component.name())) {
                 continue;
             }
-            pos = result.length();
-            boolean expanded = component.expandTo(substitutions, result, isFirst, modifier);
+            expansion.setLength(0);
+            boolean expanded = component.expandTo(substitutions, expansion, isFirst, modifier);
             isFirst = isFirst && !(expanded || flush);
             if (expanded) {
+                // unresolved components of hierarchical expression precede the expanded one
                 if (flush && !unresolved.isEmpty()) {
-                    result.insert(pos, new URITemplateVariable(modifier, unresolved));
-                    unresolved.clear();
+                    result.expression(new URITemplateVariable(modifier, unresolved));
+                    unresolved = new ArrayList<>();
                 }
+                result.text(expansion);
                 if (modifier == QUERY_START) modifier = QUERY;
             } else {
                 unresolved.add(component);
             }
         }
         if (!unresolved.isEmpty()) {
-            result.append(new URITemplateVariable(modifier, unresolved));
+            result.expression(new URITemplateVariable(modifier, unresolved));
         }
     }
 
+    /**
+     * Receiver of the partial expansion result
+     */
+    interface PartialExpansion {
+
+        void text(CharSequence text);
+
+        void expression(URITemplateVariable expression);
+
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -1,5 +1,7 @@
 package com.github.hal4j.uritemplate;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 import static com.github.hal4j.uritemplate.URITemplateParser.DISCARDED;
@@ -11,32 +13,7 @@ public class URIVarComponent {
     public static final char EXPLODE_MODIFIER = '*';
     public static final char NAME_SEPARATOR = '.';
 
-    // Variable name regular expressions:
-    /**
-     * pct-encoded character as defined in RFC 6570 section 1.5:
-     * <pre>
-     * DIGIT        =  %x30-39             ; 0-9
-     * HEXDIG       =  DIGIT / "A" / "B" / "C" / "D" / "E" / "F"
-     *                       ; case-insensitive
-     * pct-encoded  =  "%" HEXDIG HEXDIG
-     * </pre>
-     */
-    private static final String PCT_ENCODED = "%([0-9a-f]){2}";
-    /**
-     * varchar specification according to RFC 6570 section 2.3:
-     * <pre>
-     * varchar  =  ALPHA / DIGIT / "_" / pct-encoded
-     * </pre>
-     */
-    private static final String VARCHAR = "\\w|(" + PCT_ENCODED + ")";
-    /**
-     * varname specification according to RFC 6570 section 2.3:
-     * <pre>
-     * varname  =  varchar *( ["."] varchar )
-     * </pre>
-     */
-    private static final String VARNAME = "(?i)(" + VARCHAR + ")+(\\"
-            + NAME_SEPARATOR + "(" + VARCHAR + ")+)*";
+    static final int MAX_PREFIX_LENGTH = 10000;
 
     private final String name;
 
@@ -45,27 +22,93 @@ public class URIVarComponent {
     private final boolean explode;
 
     public static URIVarComponent parse(String spec) {
-        if (spec.length() < 1) throw new URITemplateSyntaxException("Component name cannot be empty");
-        boolean explode = spec.charAt(spec.length() - 1) == EXPLODE_MODIFIER;
-        int idx = spec.indexOf(':', 1);
-        if (idx == 0) {
-            throw new URITemplateSyntaxException(format("Name not specified in varspec:\"%s\"", spec));
-        } else if (idx == spec.length() - 1) {
-            throw new URITemplateSyntaxException(format("Prefix length not specified in varspec:\"%s\"", spec));
+        return parse(spec, 0, spec.length());
+    }
+
+    /**
+     * Parses varspec located in the given range of characters without creating intermediate strings
+     * @param source the characters containing the varspec
+     * @param from the index of the first character of the varspec
+     * @param to the index after the last character of the varspec
+     * @return parsed component
+     * @throws URITemplateSyntaxException if the varspec is malformed
+     */
+    static URIVarComponent parse(CharSequence source, int from, int to) {
+        if (from >= to) throw new URITemplateSyntaxException("Component name cannot be empty");
+        boolean explode = source.charAt(to - 1) == EXPLODE_MODIFIER;
+        int idx = indexOf(source, PREFIX_SEPARATOR, from + 1, to);
+        if (idx == to - 1) {
+            throw new URITemplateSyntaxException(format("Prefix length not specified in varspec:\"%s\"", source.subSequence(from, to)));
         } else if (idx > 0 && explode) {
-            throw new URITemplateSyntaxException(format("Explode flag and prefix canot be specified in same varspec:\"%s\"", spec));
+            throw new URITemplateSyntaxException(format("Explode flag and prefix canot be specified in same varspec:\"%s\"", source.subSequence(from, to)));
         }
         if (explode) {
-            return new URIVarComponent(spec.substring(0, spec.length() - 1), null, true);
+            return new URIVarComponent(source.subSequence(from, to - 1).toString(), null, true);
         } else if (idx > 0) {
-            try {
-                int length = Integer.parseInt(spec.substring(idx + 1));
-                return new URIVarComponent(spec.substring(0, idx), length, false);
-            } catch (NumberFormatException e) {
-                throw new URITemplateSyntaxException(format("Cannot parse prefix length: %s", spec));
+            int length = parsePrefixLength(source, idx + 1, to);
+            return new URIVarComponent(source.subSequence(from, idx).toString(), length, false);
+        }
+        return new URIVarComponent(source.subSequence(from, to).toString(), null, false);
+    }
+
+    private static int indexOf(CharSequence source, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (source.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    private static int parsePrefixLength(CharSequence source, int from, int to) {
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            char c = source.charAt(i);
+            if (c < '0' || c > '9' || length > MAX_PREFIX_LENGTH) {
+                throw new URITemplateSyntaxException(format("Cannot parse prefix length: %s", source.subSequence(from, to)));
             }
+            length = length * 10 + (c - '0');
         }
-        return new URIVarComponent(spec, null, false);
+        return length;
+    }
+
+    /**
+     * Validates variable name according to RFC 6570 section 2.3:
+     * <pre>
+     * varname      =  varchar *( ["."] varchar )
+     * varchar      =  ALPHA / DIGIT / "_" / pct-encoded
+     * pct-encoded  =  "%" HEXDIG HEXDIG
+     * </pre>
+     * @param source the characters containing the name
+     * @param from the index of the first character of the name
+     * @param to the index after the last character of the name
+     * @return <code>true</code> if the name is valid
+     */
+    static boolean isValidName(CharSequence source, int from, int to) {
+        boolean expectVarchar = true; // at the start of the name and after "."
+        int i = from;
+        while (i < to) {
+            char c = source.charAt(i);
+            if (c == NAME_SEPARATOR) {
+                if (expectVarchar) return false;
+                expectVarchar = true;
+                i++;
+            } else if (c == '%') {
+                if (i + 2 >= to || !isHexDigit(source.charAt(i + 1)) || !isHexDigit(source.charAt(i + 2))) {
+                    return false;
+                }
+                expectVarchar = false;
+                i += 3;
+            } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_') {
+                expectVarchar = false;
+                i++;
+            } else {
+                return false;
+            }
+        }
+        return !expectVarchar;
+    }
+
+    private static boolean isHexDigit(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
     }
 
     public static URIVarComponent var(String name) {
@@ -80,15 +123,26 @@ public class URIVarComponent {
         return new URIVarComponent(name, length, false);
     }
 
+    /**
+     * Creates component with the name validated by the caller, e.g. when reading a template snapshot
+     */
+    static URIVarComponent trusted(String name, Integer prefixLength, boolean explode) {
+        return new URIVarComponent(name, prefixLength, explode, false);
+    }
+
     private URIVarComponent(String name, Integer prefixLength, boolean explode) {
+        this(name, prefixLength, explode, true);
+    }
+
+    private URIVarComponent(String name, Integer prefixLength, boolean explode, boolean validateName) {
         if (name == null) {
             throw new NullPointerException("name");
         }
-        if (!name.matches(VARNAME)) {
+        if (validateName && !isValidName(name, 0, name.length())) {
             throw new URITemplateSyntaxException(format("Name (%s) must be (varchar *([\".\"] varchar))", name));
         }
         this.name = name;
-        if (prefixLength != null && (prefixLength <= 0 || prefixLength > 10000)) {
+        if (prefixLength != null && (prefixLength <= 0 || prefixLength > MAX_PREFIX_LENGTH)) {
             throw new URITemplateSyntaxException(format("Prefix length (%d) must be an integer number between 1 and 10000 inclusive", prefixLength));
         }
         this.prefixLength = prefixLength;
@@ -135,6 +189,15 @@ public class URIVarComponent {
 
 
     public boolean expandTo(ParamHolder substitutions, StringBuilder result, boolean isFirst, URITemplateOperator modifier) {
+        try {
+            return expandTo(substitutions, (Appendable) result, isFirst, modifier);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // unreachable: StringBuilder does not throw
+        }
+    }
+
+    public boolean expandTo(ParamHolder substitutions, Appendable result, boolean isFirst, URITemplateOperator modifier)
+            throws IOException {
         Object value = substitutions.get(name);
         if (value == null) { // empty (do not substitute)
             return false;
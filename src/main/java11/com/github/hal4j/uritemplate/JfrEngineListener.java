@@ -0,0 +1,138 @@
+package com.github.hal4j.uritemplate;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Listener emitting JDK Flight Recorder events. This class refers to <code>jdk.jfr</code>, so it is compiled
+ * separately for Java 11 into <code>META-INF/versions/11</code> of the multi-release JAR, and is only loaded
+ * by {@link URITemplateFlightRecorder} after checking that it is present, so the library still builds and runs
+ * on Java 8.
+ * <p>
+ * The events are disabled by default and must be enabled in the recording settings. Since the engine reports
+ * operations after they complete, the thresholds are applied by this listener, and the time spent is carried
+ * in the <code>elapsed</code> field rather than as the duration of the event.
+ * </p>
+ */
+final class JfrEngineListener implements URITemplateEngineListener {
+
+    private final long slowParseNanos;
+
+    private final long largeExpansionLength;
+
+    private final int largeCollectionSize;
+
+    JfrEngineListener(long slowParseNanos, long largeExpansionLength, int largeCollectionSize) {
+        this.slowParseNanos = slowParseNanos;
+        this.largeExpansionLength = largeExpansionLength;
+        this.largeCollectionSize = largeCollectionSize;
+    }
+
+    @Override
+    public void onParse(String template, long nanos) {
+        if (nanos < slowParseNanos) return;
+        ParseEvent event = new ParseEvent();
+        if (!event.isEnabled()) return;
+        event.template = template;
+        event.elapsed = nanos;
+        event.commit();
+    }
+
+    @Override
+    public void onCacheEviction(CompiledURITemplate template) {
+        CacheEvictionEvent event = new CacheEvictionEvent();
+        if (!event.isEnabled()) return;
+        event.template = template.value();
+        event.operators = operators(template);
+        event.commit();
+    }
+
+    @Override
+    public void onExpansion(CompiledURITemplate template, long length, int largestCollection, long nanos) {
+        if (length < largeExpansionLength && largestCollection < largeCollectionSize) return;
+        ExpansionEvent event = new ExpansionEvent();
+        if (!event.isEnabled()) return;
+        event.template = template.value();
+        event.operators = operators(template);
+        event.length = length;
+        event.largestCollection = largestCollection;
+        event.elapsed = nanos;
+        event.commit();
+    }
+
+    /**
+     * Describes the operator mix of the template, e.g. <code>PATH=2,QUERY_START=1</code>
+     */
+    static String operators(CompiledURITemplate template) {
+        Map<URITemplateOperator, Integer> counts = new EnumMap<>(URITemplateOperator.class);
+        for (URITemplateVariable expression : template.expressions()) {
+            counts.merge(expression.modifier().orElse(URITemplateOperator.NONE), 1, Integer::sum);
+        }
+        StringBuilder result = new StringBuilder();
+        counts.forEach((operator, count) -> {
+            if (result.length() > 0) result.append(',');
+            result.append(operator.name()).append('=').append(count);
+        });
+        return result.toString();
+    }
+
+    @Name("com.github.hal4j.uritemplate.SlowParse")
+    @Label("Slow URI Template Parse")
+    @Category("URI Templates")
+    @Enabled(false)
+    static final class ParseEvent extends Event {
+
+        @Label("Template")
+        String template;
+
+        @Label("Elapsed Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("com.github.hal4j.uritemplate.LargeExpansion")
+    @Label("Large URI Template Expansion")
+    @Description("Expansion producing long output or exploding a large list or map")
+    @Category("URI Templates")
+    @Enabled(false)
+    static final class ExpansionEvent extends Event {
+
+        @Label("Template")
+        String template;
+
+        @Label("Operators")
+        String operators;
+
+        @Label("Output Length")
+        long length;
+
+        @Label("Largest Exploded Collection")
+        int largestCollection;
+
+        @Label("Elapsed Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("com.github.hal4j.uritemplate.CacheEviction")
+    @Label("URI Template Cache Eviction")
+    @Category("URI Templates")
+    @Enabled(false)
+    static final class CacheEvictionEvent extends Event {
+
+        @Label("Template")
+        String template;
+
+        @Label("Operators")
+        String operators;
+    }
+
+}
@@ -0,0 +1,351 @@
+package com.github.hal4j.uritemplate.test;
+
+import com.github.hal4j.uritemplate.CompiledURITemplate;
+import com.github.hal4j.uritemplate.ParamHolder;
+import com.github.hal4j.uritemplate.SlotParams;
+import com.github.hal4j.uritemplate.URITemplateEngine;
+import com.github.hal4j.uritemplate.URITemplateParser;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.github.hal4j.uritemplate.ParamHolder.map;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class CompiledURITemplateTest {
+
+    private static final String TEMPLATE = "http://example.com{/a,b}{?b,c}";
+
+    @Test
+    void shouldAssignSlotsInOrderOfFirstOccurrence() {
+        CompiledURITemplate template = URITemplateParser.compile(TEMPLATE);
+        assertEquals(asList("a", "b", "c"), template.slotNames());
+        assertEquals(1, template.slotOf("b"));
+        assertEquals(-1, template.slotOf("d"));
+    }
+
+    @Test
+    void shouldExpandSlotBoundValuesSameAsNamedValues() {
+        CompiledURITemplate template = URITemplateParser.compile(TEMPLATE);
+        Map<String, Object> values = new HashMap<>();
+        values.put("a", "x y");
+        values.put("b", asList(1, 2));
+        String expected = template.expand(map(values), false);
+        assertEquals(expected, template.expand(template.bind("x y", asList(1, 2), null), false));
+        assertEquals("http://example.com/x%20y/1,2?b=1,2", expected);
+    }
+
+    @Test
+    void shouldExpandSlotBoundValuesConcurrently() {
+        CompiledURITemplate template = URITemplateParser.compile(TEMPLATE);
+        IntStream.range(0, 10000).parallel().forEach(i ->
+                assertEquals("http://example.com/" + i + "/b?b=b&c=" + i,
+                        template.expand(template.bind(i, "b", i), false)));
+    }
+
+    @Test
+    void shouldExpandPartiallyWithSlotBoundValues() {
+        CompiledURITemplate template = URITemplateParser.compile(TEMPLATE);
+        assertEquals("http://example.com/1{/b}{?b,c}", template.expand(template.bind(1, null, null), true));
+    }
+
+    @Test
+    void shouldResolveValuesBoundToOtherTemplateByName() {
+        CompiledURITemplate template = URITemplateParser.compile(TEMPLATE);
+        SlotParams params = URITemplateParser.compile("{c}{a}").bind(3, 1);
+        assertEquals("http://example.com/1?c=3", template.expand(params, false));
+    }
+
+    @Test
+    void shouldRejectWrongNumberOfSlotValues() {
+        CompiledURITemplate template = URITemplateParser.compile(TEMPLATE);
+        assertThrows(IllegalArgumentException.class, () -> template.bind(1, 2));
+    }
+
+    @Test
+    void shouldCompileResidualTemplateOfPartialExpansion() {
+        URITemplateEngine engine = URITemplateEngine.builder().build();
+        CompiledURITemplate template = engine.compile("https://{host}/t/{tenant}{/path,id}{?q,page}{&size}");
+        Map<String, Object> values = new HashMap<>();
+        values.put("host", "example.com");
+        values.put("id", 5);
+        values.put("page", 1);
+        CompiledURITemplate residual = template.expandPartial(map(values));
+        assertEquals("https://example.com/t/{tenant}{/path}/5?page=1{&q}{&size}", residual.value());
+        assertEquals(URITemplateParser.compile(residual.value()).variables(), residual.variables());
+        assertEquals(residual.value(), template.expand(map(values), true));
+        assertEquals(1, engine.cache().size());
+        assertEquals(1, engine.cache().missCount());
+    }
+
+    @Test
+    void shouldExpandTemplateWithBoundConstantsSameAsOriginal() {
+        CompiledURITemplate template = URITemplateParser.compile("https://{host}/t{/tenant,id}{?q,tenant}");
+        Map<String, Object> constants = new HashMap<>();
+        constants.put("host", "api.example.com");
+        constants.put("tenant", "a b");
+        CompiledURITemplate bound = template.bindConstants(constants);
+        assertTrue(bound.isSpecialized());
+        assertEquals(asList("id", "q"), bound.slotNames());
+        assertEquals(template.value(), bound.value());
+        for (String name : asList("none", "id", "q")) {
+            Map<String, Object> values = singletonMap(name, 5);
+            Map<String, Object> all = new HashMap<>(values);
+            all.putAll(constants);
+            assertEquals(template.expand(map(all), false), bound.expand(map(values), false));
+        }
+        assertEquals("https://api.example.com/t/a%20b/5?q=x&tenant=a%20b", bound.expand(bound.bind(5, "x"), false));
+    }
+
+    @Test
+    void shouldBindIteratorAndStreamConstantsForEveryExpansion() {
+        CompiledURITemplate template = URITemplateParser.compile("{/id,tenant}{?tags}");
+        Map<String, Object> constants = new HashMap<>();
+        constants.put("tenant", Stream.of("a", "b"));
+        constants.put("tags", asList("x", "y").iterator());
+        CompiledURITemplate bound = template.bindConstants(constants);
+        assertEquals("/5/a,b?tags=x,y", bound.expand(bound.bind(5), false));
+        assertEquals("/6/a,b?tags=x,y", bound.expand(bound.bind(6), false));
+        assertEquals("{/id}/a,b?tags=x,y", bound.expand(map(new HashMap<>()), true));
+    }
+
+    @Test
+    void shouldSkipUndefinedConstants() {
+        CompiledURITemplate template = URITemplateParser.compile("{?a,b,c}");
+        Map<String, Object> constants = new HashMap<>();
+        constants.put("a", null);
+        constants.put("b", asList());
+        CompiledURITemplate bound = template.bindConstants(constants);
+        assertEquals("?c=1", bound.expand(bound.bind(1), false));
+        assertEquals("", bound.expand(bound.bind((Object) null), false));
+    }
+
+    @Test
+    void shouldExpandPartiallyWithBoundConstants() {
+        CompiledURITemplate bound = URITemplateParser.compile("/{a}{/b,c}").bindConstants(singletonMap("a", "x"));
+        assertEquals("/x{/b}/1", bound.expandPartial(map(singletonMap("c", 1))).value());
+        assertEquals("/x/1", bound.bindConstants(singletonMap("b", 1)).expand(map(new HashMap<>()), false));
+    }
+
+    @Test
+    void shouldMatchOnlyVariablesNotBoundAsConstants() {
+        CompiledURITemplate bound = URITemplateParser.compile("/t/{tenant}/items/{id}").bindConstants(singletonMap("tenant", "a"));
+        assertEquals(singletonMap("id", "5"), bound.matcher().match("/t/a/items/5").toMap());
+    }
+
+    @Test
+    void shouldExpandLazyAndArrayValuesSameAsLists() {
+        CompiledURITemplate template = URITemplateParser.compile("/x{/ids*}{?ids}{&ids*}{;ids}");
+        String expected = "/x/1/22/-3?ids=1,22,-3&ids=1&ids=22&ids=-3;ids=1,22,-3";
+        assertEquals(expected, template.expand(template.bind(asList(1, 22, -3)), false));
+        List<Supplier<Object>> values = asList(
+                () -> (Iterable<Integer>) () -> asList(1, 22, -3).iterator(),
+                () -> new Integer[]{1, 22, -3},
+                () -> new int[]{1, 22, -3},
+                () -> new long[]{1, 22, -3});
+        for (Supplier<Object> value : values) {
+            Map<String, Object> params = singletonMap("ids", value.get());
+            assertEquals(expected, URITemplateParser.compile(template.value()).expand(map(params), false));
+            assertEquals(expected, template.expand(template.bind(value.get()), false));
+        }
+        // iterators and streams are consumed by the first occurrence of the variable
+        CompiledURITemplate query = URITemplateParser.compile("{?ids*}");
+        assertEquals("?ids=1&ids=22&ids=-3", query.expand(query.bind(asList(1, 22, -3).iterator()), false));
+        assertEquals("?ids=1&ids=22&ids=-3", query.expand(map(singletonMap("ids", Stream.of(1, 22, -3))), false));
+        assertEquals("/x", template.expand(template.bind(new int[0]), false));
+        assertEquals("", query.expand(query.bind(Stream.empty()), false));
+        assertEquals("/x/a%20b?ids=a%20b&ids=a%20b;ids=a%20b", template.expand(template.bind(Paths.get("a b")), false));
+    }
+
+    @Test
+    void shouldExpandMapsWithUndefinedValues() {
+        CompiledURITemplate template = URITemplateParser.compile("{?keys}{;keys}{;keys*}");
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("a", null);
+        assertEquals("?keys=;keys;", template.expand(template.bind(keys), false));
+        keys.put("b", "x y");
+        keys.put("c", "");
+        assertEquals("?keys=b,x%20y,c,;keys=b,x%20y,c,;b=x%20y;c", template.expand(template.bind(keys), false));
+    }
+
+    @Test
+    void shouldExpandPropertiesOfBoundObject() {
+        CompiledURITemplate template = URITemplateParser.compile("/orders/{id}{?paid,status,customer.id,customer.name,missing}");
+        Order order = new Order(5, new Customer(7, null));
+        assertEquals("/orders/5?paid=true&status=NEW&customer.id=7", template.expand(template.bindBean(order), false));
+    }
+
+    @Test
+    void shouldNotInvokeObjectMethodsOrArbitraryMethodsOfBoundObject() {
+        CompiledURITemplate template = URITemplateParser.compile("/orders/{id}{?class,hashCode,toString,cancel}");
+        Order order = new Order(5, null);
+        assertEquals("/orders/5", template.expand(template.bindBean(order), false));
+        assertFalse(order.cancelled);
+    }
+
+    @Test
+    void shouldExpandRecordComponents() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeTrue(compiler != null);
+        assumeTrue(Stream.of(Class.class.getMethods()).anyMatch(m -> m.getName().equals("isRecord")));
+        Path dir = Files.createTempDirectory("records");
+        try {
+            Path source = dir.resolve("Point.java");
+            Files.write(source, singletonList("public record Point(int x, int y) { "
+                    + "public String describe() { return \"point\"; } }"), StandardCharsets.UTF_8);
+            assertEquals(0, compiler.run(null, null, null, "-d", dir.toString(), source.toString()));
+            try (URLClassLoader loader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, getClass().getClassLoader())) {
+                Object point = loader.loadClass("Point").getConstructor(int.class, int.class).newInstance(3, 4);
+                CompiledURITemplate template = URITemplateParser.compile("{/x,y,describe}");
+                assertEquals("/3/4", template.expand(template.bindBean(point), false));
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    void shouldExpandPropertiesOfClassFromChildClassLoader() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeTrue(compiler != null);
+        Path dir = Files.createTempDirectory("beans");
+        try {
+            Path source = dir.resolve("PluginBean.java");
+            Files.write(source, singletonList("public class PluginBean { "
+                    + "public String getName() { return \"a b\"; } "
+                    + "public PluginBean getSelf() { return this; } }"), StandardCharsets.UTF_8);
+            assertEquals(0, compiler.run(null, null, null, "-d", dir.toString(), source.toString()));
+            try (URLClassLoader loader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, getClass().getClassLoader())) {
+                Object bean = loader.loadClass("PluginBean").getConstructor().newInstance();
+                CompiledURITemplate template = URITemplateParser.compile("/{name}{/self.name}");
+                assertEquals("/a%20b/a%20b", template.expand(template.bindBean(bean), false));
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    void shouldExpandPropertiesOfPublicClass() {
+        CompiledURITemplate template = URITemplateParser.compile("{/year,monthValue,chronology.id}");
+        assertEquals("/2024/5/ISO", template.expand(template.bindBean(LocalDate.of(2024, 5, 1)), false));
+    }
+
+    @Test
+    void shouldExpandMapPropertiesByKey() {
+        CompiledURITemplate template = URITemplateParser.compile("{/customer.attributes.tier}");
+        Customer customer = new Customer(7, "x");
+        customer.attributes.put("tier", "gold");
+        Order order = new Order(1, customer);
+        assertEquals("/gold", template.expand(template.bindBean(order), false));
+    }
+
+    @Test
+    void shouldExpandAllParameterSetsInOrder() {
+        CompiledURITemplate template = URITemplateParser.compile("/items/{id}");
+        ParamHolder[] params = IntStream.range(0, 3).mapToObj(i -> map(singletonMap("id", i))).toArray(ParamHolder[]::new);
+        String[] expected = {"/items/0", "/items/1", "/items/2"};
+        assertArrayEquals(expected, template.expandAll(params));
+        assertEquals(asList(expected), template.expandAll(asList(params)));
+        assertEquals(asList(expected), template.expandAll(Stream.of(params)).collect(toList()));
+    }
+
+    @Test
+    void shouldExpandAllInParallelPreservingOrder() {
+        CompiledURITemplate template = URITemplateParser.compile("/items/{id}{?q}");
+        ParamHolder[] params = IntStream.range(0, 100000).mapToObj(i -> map(singletonMap("id", i))).toArray(ParamHolder[]::new);
+        String[] expected = template.expandAll(params);
+        assertArrayEquals(expected, template.expandAllParallel(params));
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertArrayEquals(expected, template.expandAllParallel(params, executor));
+        } finally {
+            executor.shutdown();
+        }
+        assertArrayEquals(expected, template.expandAll(Stream.of(params).parallel()).toArray(String[]::new));
+    }
+
+    @Test
+    void shouldPropagateFailureOfParallelExpansion() {
+        CompiledURITemplate template = URITemplateEngine.builder().maxExpansionLength(10).build().compile("/items/{id}");
+        ParamHolder[] params = IntStream.range(0, 100000).mapToObj(i -> map(singletonMap("id", i))).toArray(ParamHolder[]::new);
+        assertThrows(IllegalArgumentException.class, () -> template.expandAllParallel(params));
+    }
+
+    public static class Order {
+
+        private final int id;
+
+        private final Customer customer;
+
+        private boolean cancelled;
+
+        Order(int id, Customer customer) {
+            this.id = id;
+            this.customer = customer;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public boolean isPaid() {
+            return true;
+        }
+
+        public String getStatus() {
+            return "NEW";
+        }
+
+        public String cancel() {
+            cancelled = true;
+            return "CANCELLED";
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+    }
+
+    public static class Customer {
+
+        public final long id;
+
+        public final String name;
+
+        public final Map<String, Object> attributes = new HashMap<>();
+
+        Customer(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+
+}
@@ -73,4 +73,28 @@ class ParseErrorTest {
                 () -> parseAndExpand("http://www.example.com/{var}}", true, ANY));
     }
 
+    @Test
+    void shouldThrowSyntaxErrorOnTrailingComma() {
+        assertThrows(URITemplateSyntaxException.class,
+                () -> parseAndExpand("http://www.example.com/{a,b,}", true, ANY));
+    }
+
+    @Test
+    void shouldThrowSyntaxErrorOnEmptyNameSegment() {
+        assertThrows(URITemplateSyntaxException.class,
+                () -> parseAndExpand("http://www.example.com/{a..b}", true, ANY));
+    }
+
+    @Test
+    void shouldThrowSyntaxErrorOnInvalidPercentEncodingInName() {
+        assertThrows(URITemplateSyntaxException.class,
+                () -> parseAndExpand("http://www.example.com/{%zz}", true, ANY));
+    }
+
+    @Test
+    void shouldThrowSyntaxErrorOnInvalidPrefixLength() {
+        assertThrows(URITemplateSyntaxException.class,
+                () -> parseAndExpand("http://www.example.com/{var:1x}", true, ANY));
+    }
+
 }
@@ -0,0 +1,59 @@
+package com.github.hal4j.uritemplate.test;
+
+import com.github.hal4j.uritemplate.PercentDecoder;
+import com.github.hal4j.uritemplate.PercentEncoder;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PercentDecoderTest {
+
+    @Test
+    void shouldReturnStringWithoutTripletsAsIs() {
+        String s = "order-42_a+b.DEF~";
+        assertSame(s, PercentDecoder.decode(s));
+    }
+
+    @Test
+    void shouldDecodeMultiByteCharacters() {
+        assertEquals("a ü日😀z+", PercentDecoder.decode("a%20%C3%BC%e6%97%a5%F0%9F%98%80z+"));
+    }
+
+    @Test
+    void shouldRestoreEncodedString() {
+        String s = "/a?b=c d&e=ü日😀%";
+        assertEquals(s, PercentDecoder.decode(PercentEncoder.DEFAULT.encode(s)));
+    }
+
+    @Test
+    void shouldKeepMalformedTriplets() {
+        assertEquals("100%", PercentDecoder.decode("100%"));
+        assertEquals("%zz%4 %4", PercentDecoder.decode("%zz%4 %4"));
+        assertEquals("%%", PercentDecoder.decode("%%25"));
+    }
+
+    @Test
+    void shouldReplaceInvalidUtf8Sequences() {
+        assertEquals("�a", PercentDecoder.decode("%C3a"));
+        assertEquals("��", PercentDecoder.decode("%C0%80"));
+        assertEquals("�", PercentDecoder.decode("%ED%A0%80"));
+        assertEquals("�é", PercentDecoder.decode("%E6%C3%A9"));
+    }
+
+    @Test
+    void shouldDecodeOnlyGivenRange() {
+        StringBuilder sb = new StringBuilder(">");
+        PercentDecoder.decodeTo("xx%20a%2Fb xx", 2, 10, sb);
+        assertEquals("> a/b", sb.toString());
+        assertEquals(" a", PercentDecoder.decode("xx%20a%2Fb xx", 2, 6));
+        assertEquals("a%2", PercentDecoder.decode("xx%20a%2Fb xx", 5, 8));
+    }
+
+    @Test
+    void shouldFindFirstMalformedTriplet() {
+        assertEquals(9, PercentDecoder.firstMalformed("a%20b%2Fc", 0, 9));
+        assertEquals(4, PercentDecoder.firstMalformed("a%20%2", 0, 6));
+        assertEquals(1, PercentDecoder.firstMalformed("a%g0", 0, 4));
+    }
+
+}
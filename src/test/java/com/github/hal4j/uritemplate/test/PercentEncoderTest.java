@@ -0,0 +1,77 @@
+package com.github.hal4j.uritemplate.test;
+
+import com.github.hal4j.uritemplate.PercentEncoder;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PercentEncoderTest {
+
+    @Test
+    void shouldReturnSafeStringAsIs() {
+        String s = "order-42_abc.DEF~";
+        assertSame(s, PercentEncoder.DEFAULT.encode(s));
+    }
+
+    @Test
+    void shouldEncodeMultiByteCharacters() {
+        assertEquals("a%20%C3%BC%E6%97%A5%F0%9F%98%80z", PercentEncoder.DEFAULT.encode("a ü日😀z"));
+    }
+
+    @Test
+    void shouldKeepReservedCharactersInLiteralEncoder() {
+        assertEquals("/a?b=c%20d", PercentEncoder.LITERAL.encode("/a?b=c d"));
+        assertEquals("%2Fa%3Fb%3Dc%20d", PercentEncoder.DEFAULT.encode("/a?b=c d"));
+    }
+
+    @Test
+    void shouldApplyComponentSpecificRules() {
+        String s = "a b/c:d@e?f&g=h+i#j";
+        assertEquals("a%20b%2Fc:d@e%3Ff&g=h+i%23j", PercentEncoder.PATH_SEGMENT.encode(s));
+        assertEquals("a%20b/c:d@e%3Ff&g=h+i%23j", PercentEncoder.PATH.encode(s));
+        assertEquals("a%20b/c:d@e?f&g=h+i%23j", PercentEncoder.QUERY.encode(s));
+        assertEquals("a%20b/c:d@e?f%26g%3Dh%2Bi%23j", PercentEncoder.QUERY_PARAM.encode(s));
+        assertEquals("a%20b/c:d@e?f&g=h+i%23j", PercentEncoder.FRAGMENT.encode(s));
+        assertEquals("a%20b%2Fc:d%40e%3Ff&g=h+i%23j", PercentEncoder.USERINFO.encode(s));
+        assertEquals("a%20b%2Fc%3Ad%40e%3Ff&g=h+i%23j", PercentEncoder.REG_NAME.encode(s));
+    }
+
+    @Test
+    void shouldEncodeOnlyGivenRange() {
+        StringBuilder sb = new StringBuilder(">");
+        PercentEncoder.DEFAULT.encodeTo("xx a/b xx", 2, 7, sb);
+        assertEquals(">%20a%2Fb%20", sb.toString());
+    }
+
+    @Test
+    void shouldEncodeIntoAppendable() throws IOException {
+        StringWriter writer = new StringWriter();
+        PercentEncoder.DEFAULT.encodeTo("50% 😀", 0, 6, writer);
+        assertEquals("50%25%20%F0%9F%98%80", writer.toString());
+    }
+
+    @Test
+    void shouldFindFirstUnsafeCharacter() {
+        assertEquals(3, PercentEncoder.DEFAULT.firstUnsafe("abc def", 0, 7));
+        assertEquals(7, PercentEncoder.DEFAULT.firstUnsafe("abc def", 4, 7));
+    }
+
+    @Test
+    void shouldFindUnsafeCharacterAtAnyPosition() {
+        for (char c = 0; c < 0x100; c++) {
+            boolean allowed = PercentEncoder.UNRESERVED.indexOf(c) >= 0;
+            assertEquals(allowed, PercentEncoder.DEFAULT.isAllowed(c), "Classification of " + (int) c);
+            for (int position = 0; position < 9; position++) {
+                StringBuilder sb = new StringBuilder("abcdefghi");
+                sb.setCharAt(position, c);
+                int expected = allowed ? sb.length() : position;
+                assertEquals(expected, PercentEncoder.DEFAULT.firstUnsafe(sb, 0, sb.length()),
+                        "Position of " + (int) c + " in " + sb);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.github.hal4j.uritemplate.test;
+
+import com.github.hal4j.uritemplate.CompiledURITemplate;
+import com.github.hal4j.uritemplate.URITemplateCache;
+import com.github.hal4j.uritemplate.URITemplateEngine;
+import com.github.hal4j.uritemplate.URITemplateSyntaxException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class URITemplateCacheTest {
+
+    private static final String TEMPLATE = "http://www.example.com{/id}{?page,size}";
+
+    @Test
+    void shouldReturnSameCompiledTemplateOnRepeatedLookup() {
+        URITemplateCache cache = cache(10);
+        CompiledURITemplate first = cache.get(TEMPLATE);
+        CompiledURITemplate second = cache.get(TEMPLATE);
+        assertSame(first, second);
+        assertEquals(1, cache.missCount());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void shouldKeepSizeWithinLimit() {
+        URITemplateCache cache = cache(10);
+        for (int i = 0; i < 100; i++) {
+            cache.get("http://www.example.com/" + i + "{?q}");
+        }
+        assertTrue(cache.size() <= 10, "Cache size exceeds the limit: " + cache.size());
+        assertEquals(cache.missCount() - cache.size(), cache.evictionCount());
+    }
+
+    @Test
+    void shouldPreferRecentlyUsedEntriesOnEviction() {
+        URITemplateCache cache = cache(10);
+        CompiledURITemplate hot = cache.get(TEMPLATE);
+        for (int i = 0; i < 100; i++) {
+            cache.get("http://www.example.com/" + i + "{?q}");
+            assertSame(hot, cache.get(TEMPLATE));
+        }
+        assertEquals(1, cache.missCount() - 100);
+    }
+
+    @Test
+    void shouldNotCacheWhenDisabled() {
+        URITemplateCache cache = cache(0);
+        assertNotSame(cache.get(TEMPLATE), cache.get(TEMPLATE));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void shouldNotCacheMalformedTemplates() {
+        URITemplateCache cache = cache(10);
+        assertThrows(URITemplateSyntaxException.class, () -> cache.get("http://www.example.com/{"));
+        assertEquals(0, cache.size());
+    }
+
+    private static URITemplateCache cache(int size) {
+        return URITemplateEngine.builder().cacheSize(size).build().cache();
+    }
+
+}
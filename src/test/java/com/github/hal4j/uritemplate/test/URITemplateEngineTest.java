@@ -0,0 +1,72 @@
+package com.github.hal4j.uritemplate.test;
+
+import com.github.hal4j.uritemplate.URITemplate;
+import com.github.hal4j.uritemplate.URITemplateEngine;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+class URITemplateEngineTest {
+
+    private static final String TEMPLATE = "http://www.example.com{/id}{?q*}";
+
+    @Test
+    void shouldBindTemplatesToDefaultEngine() {
+        assertSame(URITemplateEngine.defaultEngine(), new URITemplate(TEMPLATE).engine());
+    }
+
+    @Test
+    void shouldUseCacheOfBoundEngine() {
+        URITemplateEngine engine = URITemplateEngine.builder().cacheSize(10).build();
+        engine.template(TEMPLATE).expand("1");
+        engine.template(TEMPLATE).expand("2");
+        assertEquals(1, engine.cache().missCount());
+        assertEquals(1, engine.cache().hitCount());
+    }
+
+    @Test
+    void shouldKeepEngineBindingAfterExpansion() {
+        URITemplateEngine engine = URITemplateEngine.builder().build();
+        URITemplate result = engine.template(TEMPLATE).expandPartial("id", "1");
+        assertSame(engine, result.engine());
+    }
+
+    @Test
+    void shouldSpecializeAfterConfiguredNumberOfExpansions() {
+        URITemplateEngine engine = URITemplateEngine.builder().specializationThreshold(2).build();
+        URITemplate template = engine.template(TEMPLATE);
+        assertEquals("http://www.example.com/1", template.expand("1").toString());
+        assertFalse(engine.compile(TEMPLATE).isSpecialized());
+        assertEquals("http://www.example.com/2?q=a&q=b", template.expand("2", asList("a", "b")).toString());
+        assertTrue(engine.compile(TEMPLATE).isSpecialized());
+    }
+
+    @Test
+    void shouldNeverSpecializeWithUnlimitedThreshold() {
+        URITemplateEngine engine = URITemplateEngine.builder()
+                .specializationThreshold(URITemplateEngine.UNLIMITED).build();
+        URITemplate template = engine.template(TEMPLATE);
+        for (int i = 0; i < 100; i++) {
+            template.expand(String.valueOf(i));
+        }
+        assertFalse(engine.compile(TEMPLATE).isSpecialized());
+    }
+
+    @Test
+    void shouldRejectTooLongTemplates() {
+        URITemplateEngine engine = URITemplateEngine.builder().maxTemplateLength(10).build();
+        assertThrows(IllegalArgumentException.class, () -> engine.template(TEMPLATE).expand("1"));
+    }
+
+    @Test
+    void shouldRejectTooLongExpansions() {
+        URITemplateEngine engine = URITemplateEngine.builder().maxExpansionLength(30).build();
+        URITemplate template = engine.template(TEMPLATE);
+        assertEquals("http://www.example.com/1", template.expand(singletonMap("id", "1")).toString());
+        assertThrows(IllegalArgumentException.class,
+                () -> template.expand(singletonMap("q", asList("1234567890", "1234567890"))));
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.github.hal4j.uritemplate.test;
+
+import com.github.hal4j.uritemplate.URITemplateEngine;
+import com.github.hal4j.uritemplate.URITemplateEngineListener;
+import com.github.hal4j.uritemplate.URITemplateFlightRecorder;
+import com.github.hal4j.uritemplate.URITemplateMetrics;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class URITemplateFlightRecorderTest {
+
+    private static final String PARSE = "com.github.hal4j.uritemplate.SlowParse";
+
+    private static final String EXPANSION = "com.github.hal4j.uritemplate.LargeExpansion";
+
+    private static final String EVICTION = "com.github.hal4j.uritemplate.CacheEviction";
+
+    @BeforeEach
+    void requireFlightRecorder() {
+        assumeTrue(URITemplateFlightRecorder.isAvailable());
+    }
+
+    @Test
+    void shouldRecordEnabledEventsAboveThresholds() throws IOException {
+        URITemplateEngine engine = URITemplateEngine.builder()
+                .cacheSize(1)
+                .listener(URITemplateFlightRecorder.builder()
+                        .slowParseThreshold(Duration.ZERO)
+                        .largeCollectionThreshold(3)
+                        .build())
+                .build();
+        List<RecordedEvent> events = record(() -> {
+            engine.template("/a{/list*}{?q}").expand(IntStream.range(0, 3).boxed().collect(toList()), "x");
+            engine.template("/b{/list*}").expand(IntStream.range(0, 2).boxed().collect(toList()));
+        }, PARSE, EXPANSION, EVICTION);
+        assertEquals(2, count(events, PARSE));
+        List<RecordedEvent> expansions = events.stream().filter(e -> e.getEventType().getName().equals(EXPANSION)).collect(toList());
+        assertEquals(1, expansions.size());
+        RecordedEvent expansion = expansions.get(0);
+        assertEquals("/a{/list*}{?q}", expansion.getString("template"));
+        assertEquals("PATH=1,QUERY_START=1", expansion.getString("operators"));
+        assertEquals(3, expansion.getInt("largestCollection"));
+        assertEquals("/a/0/1/2?q=x".length(), expansion.getLong("length"));
+        assertEquals(1, count(events, EVICTION));
+    }
+
+    @Test
+    void shouldNotRecordDisabledEvents() throws IOException {
+        URITemplateEngine engine = URITemplateEngine.builder()
+                .listener(URITemplateFlightRecorder.builder().slowParseThreshold(Duration.ZERO).build())
+                .build();
+        List<RecordedEvent> events = record(() -> engine.template("/{id}").expand(1));
+        assertEquals(0, count(events, PARSE));
+    }
+
+    @Test
+    void shouldCombineWithMetrics() {
+        URITemplateMetrics metrics = new URITemplateMetrics();
+        URITemplateEngineListener recorder = URITemplateFlightRecorder.builder().build();
+        assertNotNull(recorder);
+        URITemplateEngineListener listener = URITemplateEngineListener.combine(metrics, recorder);
+        URITemplateEngine.builder().listener(listener).build().template("/{id}").expand(1);
+        assertEquals(1, metrics.getExpansionCount());
+        assertSame(metrics, URITemplateEngineListener.combine(null, metrics));
+        assertNull(URITemplateEngineListener.combine());
+    }
+
+    private static List<RecordedEvent> record(Runnable action, String... enabled) throws IOException {
+        Path file = Files.createTempFile("uritemplate", ".jfr");
+        try (Recording recording = new Recording()) {
+            for (String name : enabled) {
+                recording.enable(name);
+            }
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static long count(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).count();
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.github.hal4j.uritemplate.test;
+
+import com.github.hal4j.uritemplate.CompiledURITemplate;
+import com.github.hal4j.uritemplate.URITemplate;
+import com.github.hal4j.uritemplate.URITemplateMatch;
+import com.github.hal4j.uritemplate.URITemplateMatcher;
+import com.github.hal4j.uritemplate.URITemplateParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Collections.singletonMap;
+import static org.junit.jupiter.api.Assertions.*;
+
+class URITemplateMatcherTest {
+
+    @Test
+    void shouldExtractPathAndQueryVariables() {
+        URITemplateMatch match = new URITemplate("/orders/{id}{?page,size}").match("/orders/42?page=3");
+        Map<String, String> expected = new HashMap<>();
+        expected.put("id", "42");
+        expected.put("page", "3");
+        assertEquals(expected, match.toMap());
+        assertNull(match.get("size"));
+    }
+
+    @Test
+    void shouldReportCapturesAsOffsets() {
+        CompiledURITemplate template = URITemplateParser.compile("/orders/{id}/items/{item}");
+        URITemplateMatch match = template.matcher().match("/orders/42/items/7");
+        int slot = template.slotOf("item");
+        assertEquals(17, match.start(slot));
+        assertEquals(18, match.end(slot));
+    }
+
+    @Test
+    void shouldDecodeCapturedValues() {
+        URITemplateMatch match = new URITemplate("/search{?q}").match("/search?q=stra%C3%9Fe%20a%2Fb");
+        assertEquals("straße a/b", match.get("q"));
+    }
+
+    @Test
+    void shouldMatchQueryParametersInAnyOrder() {
+        URITemplateMatch match = new URITemplate("/list{?page,size}{&sort}").match("/list?sort=name&x=1&size=10&page=2");
+        assertEquals("2", match.get("page"));
+        assertEquals("10", match.get("size"));
+        assertEquals("name", match.get("sort"));
+    }
+
+    @Test
+    void shouldMatchPathSegmentsAndMatrixParameters() {
+        URITemplateMatch match = new URITemplate("{/a,b}{;x,y,z}").match("/1/2;x=3;z");
+        assertEquals("1", match.get("a"));
+        assertEquals("2", match.get("b"));
+        assertEquals("3", match.get("x"));
+        assertNull(match.get("y"));
+        assertEquals("", match.get("z"));
+    }
+
+    @Test
+    void shouldCaptureExplodedPathAsWhole() {
+        URITemplateMatch match = new URITemplate("/files{/path*}{.ext}").match("/files/a/b/c.txt");
+        assertEquals("a/b/c", match.get("path"));
+        assertEquals("txt", match.get("ext"));
+    }
+
+    @Test
+    void shouldCaptureFirstValueOfExplodedQueryParameter() {
+        URITemplateMatch match = new URITemplate("/list{?tag*}").match("/list?tag=a&tag=b");
+        assertEquals("a", match.get("tag"));
+    }
+
+    @Test
+    void shouldLimitPrefixedValuesToPrefixLength() {
+        URITemplate template = new URITemplate("/{x:3}{?q:2}");
+        assertEquals("abc", template.match("/abc").get("x"));
+        assertEquals("ü日", template.match("/%C3%BC%E6%97%A5?q=%C3%BC%E6%97%A5").get("q"));
+        assertNull(template.match("/abcdef"));
+        assertNull(template.match("/abc?q=abc"));
+    }
+
+    @Test
+    void shouldCaptureReservedValueBeforeFinalLiteral() {
+        URITemplateMatch match = new URITemplate("{+base}/index.html").match("http://example.com/a/b/index.html");
+        assertEquals("http://example.com/a/b", match.get("base"));
+    }
+
+    @Test
+    void shouldNotMatchDifferentLiterals() {
+        URITemplate template = new URITemplate("/orders/{id}");
+        assertNull(template.match("/customers/42"));
+        assertNull(template.match("/orders/42/items"));
+        assertNull(template.match("/orders"));
+    }
+
+    @Test
+    void shouldReuseMatchResult() {
+        URITemplateMatcher matcher = URITemplateParser.compile("/orders/{id}{?page}").matcher();
+        URITemplateMatch match = matcher.newMatch();
+        assertTrue(matcher.match("/orders/1?page=5", match));
+        assertEquals("5", match.get("page"));
+        assertTrue(matcher.match("/orders/2", match));
+        assertEquals(singletonMap("id", "2"), match.toMap());
+        assertFalse(matcher.match("/other", match));
+    }
+
+    @Test
+    void shouldExpandTemplateWithMatchedValues() {
+        CompiledURITemplate template = URITemplateParser.compile("/orders/{id}{?q}");
+        URITemplateMatch match = template.matcher().match("/orders/42?q=a%20b");
+        assertEquals("/orders/42?q=a%20b", template.expand(match, false));
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.github.hal4j.uritemplate.test;
+
+import com.github.hal4j.uritemplate.CompiledURITemplate;
+import com.github.hal4j.uritemplate.URITemplateEngine;
+import com.github.hal4j.uritemplate.URITemplateMetrics;
+import com.github.hal4j.uritemplate.URITemplateOperator;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class URITemplateMetricsTest {
+
+    private static final String TEMPLATE = "http://www.example.com{/id}{?q*}";
+
+    @Test
+    void shouldCountParsesAndCacheLookups() {
+        URITemplateMetrics metrics = new URITemplateMetrics();
+        URITemplateEngine engine = URITemplateEngine.builder().listener(metrics).build();
+        engine.template(TEMPLATE).expand("1");
+        engine.template(TEMPLATE).expand("2");
+        assertEquals(1, metrics.getParseCount());
+        assertEquals(1, metrics.getCacheMissCount());
+        assertEquals(1, metrics.getCacheHitCount());
+        assertEquals(0.5, metrics.getCacheHitRatio());
+    }
+
+    @Test
+    void shouldRecordExpansionsPerOperator() {
+        URITemplateMetrics metrics = new URITemplateMetrics();
+        URITemplateEngine engine = URITemplateEngine.builder().listener(metrics).specializationThreshold(2).build();
+        for (int i = 0; i < 3; i++) {
+            engine.template(TEMPLATE).expand("a b", asList("x", "y"));
+        }
+        assertEquals(3, metrics.getExpansionCount());
+        assertEquals(3, metrics.expressionCount(URITemplateOperator.PATH));
+        assertEquals(3, metrics.expressionCount(URITemplateOperator.QUERY_START));
+        assertEquals(0, metrics.expressionCount(URITemplateOperator.NONE));
+        assertEquals(3, metrics.getEncodeSlowPathCount());
+        assertEquals(6, metrics.getEncodeFastPathCount());
+        int length = "http://www.example.com/a%20b?q=x&q=y".length();
+        assertEquals(length, metrics.getOutputLengthMean());
+        assertEquals(length, metrics.getOutputLengthMax());
+        assertEquals(length, metrics.getOutputLengthP99());
+        assertTrue(metrics.getExpansionLatencyP99() >= metrics.getExpansionLatencyP50());
+    }
+
+    @Test
+    void shouldObserveExpansionToAllTargets() throws Exception {
+        URITemplateMetrics metrics = new URITemplateMetrics();
+        CompiledURITemplate template = URITemplateEngine.builder().listener(metrics).build().compile("/{id}");
+        StringWriter writer = new StringWriter();
+        template.expandTo(template.bind("1"), writer);
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        template.expandToBytes(template.bind("22"), buffer);
+        assertEquals("/1", writer.toString());
+        assertEquals(3, buffer.position());
+        assertEquals(2, metrics.getExpansionCount());
+        assertEquals(3, metrics.getOutputLengthMax());
+    }
+
+    @Test
+    void shouldResetAllMetrics() {
+        URITemplateMetrics metrics = new URITemplateMetrics();
+        URITemplateEngine.builder().listener(metrics).build().template(TEMPLATE).expand("1");
+        metrics.reset();
+        assertEquals(0, metrics.getParseCount());
+        assertEquals(0, metrics.getExpansionCount());
+        assertEquals(0, metrics.getCacheMissCount());
+        assertEquals(0, metrics.getOutputLengthMax());
+    }
+
+    @Test
+    void shouldExposeMetricsViaJmx() throws Exception {
+        URITemplateMetrics metrics = new URITemplateMetrics();
+        URITemplateEngine.builder().listener(metrics).build().template(TEMPLATE).expand("1");
+        ObjectName name = metrics.registerMBean("test");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, server.getAttribute(name, "ExpansionCount"));
+            assertEquals(1L, server.getAttribute(name, "ParseCount"));
+            assertNotNull(server.getAttribute(name, "ExpressionCounts"));
+        } finally {
+            URITemplateMetrics.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    void shouldNotRequireListener() {
+        assertNull(URITemplateEngine.builder().build().listener());
+    }
+
+}
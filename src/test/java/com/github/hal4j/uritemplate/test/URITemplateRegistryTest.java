@@ -0,0 +1,194 @@
+package com.github.hal4j.uritemplate.test;
+
+import com.github.hal4j.uritemplate.CompiledURITemplate;
+import com.github.hal4j.uritemplate.URITemplateRegistry;
+import com.github.hal4j.uritemplate.URITemplateRegistryException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.github.hal4j.uritemplate.ParamHolder.map;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class URITemplateRegistryTest {
+
+    @Test
+    void shouldLoadTemplatesFromProperties() throws IOException {
+        URITemplateRegistry registry = URITemplateRegistry.builder()
+                .properties("links", new StringReader("order=/orders/{id}\n# comment\nsearch = /search{?q}\n"))
+                .build();
+        assertEquals(2, registry.size());
+        assertEquals("/orders/5", registry.get("order").expand(registry.get("order").bind(5), false));
+        assertEquals("/search?q=x", registry.template("search").expand("x").toString());
+        assertNull(registry.get("missing"));
+        assertThrows(IllegalArgumentException.class, () -> registry.template("missing"));
+    }
+
+    @Test
+    void shouldReadPropertiesLineByLine() throws IOException {
+        String properties = "! comment\n"
+                + "  long = /a/{x}\\\n"
+                + "         /b/{y}\n"
+                + "escaped\\ key:/t/\\u00e9{?q}\n"
+                + "path\t/{path}\n";
+        URITemplateRegistry registry = URITemplateRegistry.builder()
+                .properties("links", new StringReader(properties))
+                .build();
+        assertEquals("/a/{x}/b/{y}", registry.get("long").value());
+        assertEquals("/t/é{?q}", registry.get("escaped key").value());
+        assertEquals("/{path}", registry.get("path").value());
+    }
+
+    @Test
+    void shouldReportDuplicateAndMalformedPropertiesWithLineNumbers() {
+        String properties = "a=/a\n"
+                + "# comment\n"
+                + "b=/b/\\u00zz\n"
+                + "a=/other\n";
+        URITemplateRegistryException e = assertThrows(URITemplateRegistryException.class, () ->
+                URITemplateRegistry.builder().properties("links.properties", new StringReader(properties)).build());
+        assertEquals(2, e.errors().size());
+        assertTrue(e.errors().get(0).startsWith("links.properties:3: Malformed properties"));
+        assertEquals("links.properties:4 [a]: duplicate name a, first defined in links.properties:1", e.errors().get(1));
+    }
+
+    @Test
+    void shouldRejectSignedUnicodeEscapeInJson() {
+        String line = "{\"name\": \"a\", \"template\": \"/\\u-001\"}";
+        URITemplateRegistryException e = assertThrows(URITemplateRegistryException.class, () ->
+                URITemplateRegistry.builder().jsonLines("links.jsonl", new StringReader(line)).build());
+        assertTrue(e.errors().get(0).startsWith("links.jsonl:1: Malformed JSON: expected 4 hex digits"));
+    }
+
+    @Test
+    void shouldLoadTemplatesFromJsonLines() throws IOException {
+        String lines = "{\"name\": \"order\", \"template\": \"/orders/{id}\", \"version\": 2}\n"
+                + "\n"
+                + "{\"template\":\"/t/\\u00e9{?q}\",\"name\":\"unicode\",\"tags\":[\"a\",{\"b\":1}]}\n";
+        URITemplateRegistry registry = URITemplateRegistry.builder().jsonLines("links.jsonl", new StringReader(lines)).build();
+        assertEquals("/orders/{id}", registry.get("order").value());
+        assertEquals("/t/é{?q}", registry.get("unicode").value());
+    }
+
+    @Test
+    void shouldLoadTemplatesFromFiles() throws IOException {
+        Path properties = Files.createTempFile("links", ".properties");
+        Path jsonLines = Files.createTempFile("links", ".jsonl");
+        try {
+            Files.write(properties, singletonList("a=/a/{id}"), StandardCharsets.UTF_8);
+            Files.write(jsonLines, singletonList("{\"name\":\"b\",\"template\":\"/b/{id}\"}"), StandardCharsets.UTF_8);
+            URITemplateRegistry registry = URITemplateRegistry.builder().properties(properties).jsonLines(jsonLines).build();
+            assertEquals(asList("a", "b"), registry.names().stream().sorted().collect(toList()));
+        } finally {
+            Files.delete(properties);
+            Files.delete(jsonLines);
+        }
+    }
+
+    @Test
+    void shouldReportAllErrorsAtOnce() {
+        String lines = "{\"name\": \"ok\", \"template\": \"/{id}\"}\n"
+                + "{\"name\": \"unclosed\", \"template\": \"/{id\"}\n"
+                + "{\"name\": \"broken\"\n"
+                + "{\"name\": \"ok\", \"template\": \"/other\"}\n"
+                + "{\"template\": \"/{x}\"}\n";
+        URITemplateRegistryException e = assertThrows(URITemplateRegistryException.class, () ->
+                URITemplateRegistry.builder().jsonLines("links.jsonl", new StringReader(lines)).template("bad", "{a,}").build());
+        assertEquals(5, e.errors().size());
+        assertTrue(e.errors().get(0).startsWith("links.jsonl:2 [unclosed]: "));
+        assertTrue(e.errors().get(1).startsWith("links.jsonl:3: Malformed JSON"));
+        assertEquals("links.jsonl:4 [ok]: duplicate name ok, first defined in links.jsonl:1", e.errors().get(2));
+        assertEquals("links.jsonl:5: Template name is not specified", e.errors().get(3));
+        assertTrue(e.errors().get(4).startsWith("<template> [bad]: "));
+        assertEquals(4, e.getSuppressed().length);
+    }
+
+    @Test
+    void shouldRestoreTemplatesFromSnapshot() throws IOException {
+        URITemplateRegistry registry = URITemplateRegistry.builder()
+                .template("order", "https://api.example.com/orders/{id}{?fields,page}")
+                .template("items", "/é/{+base}{/path*,id:3}{;x,y}{#frag}")
+                .template("plain", "/static")
+                .build();
+        Path file = Files.createTempFile("links", ".snapshot");
+        try {
+            registry.writeSnapshot(file);
+            URITemplateRegistry restored = URITemplateRegistry.builder().snapshot(file).template("extra", "/{x}").build();
+            assertEquals(4, restored.size());
+            for (String name : registry.names()) {
+                CompiledURITemplate expected = registry.get(name);
+                CompiledURITemplate actual = restored.get(name);
+                assertEquals(expected.value(), actual.value());
+                assertEquals(expected.variables(), actual.variables());
+                Map<String, Object> values = new HashMap<>();
+                values.put("id", "12345");
+                values.put("path", asList("a", "b"));
+                values.put("base", "/x/y");
+                values.put("x", 1);
+                assertEquals(expected.expand(map(values), false), actual.expand(map(values), false));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void shouldRejectMalformedSnapshot() throws IOException {
+        Path file = Files.createTempFile("links", ".snapshot");
+        try {
+            URITemplateRegistry.builder().template("order", "/orders/{id}").build().writeSnapshot(file);
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+            assertThrows(IOException.class, () -> URITemplateRegistry.builder().snapshot(file));
+            Files.write(file, "/orders/{id}".getBytes(StandardCharsets.UTF_8));
+            assertThrows(IOException.class, () -> URITemplateRegistry.builder().snapshot(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void shouldRejectSnapshotWithInvalidPrefixLength() throws IOException {
+        Path file = Files.createTempFile("links", ".snapshot");
+        try {
+            URITemplateRegistry.builder().template("order", "/orders/{id:999}").build().writeSnapshot(file);
+            byte[] bytes = Files.readAllBytes(file);
+            int i = 0;
+            while (bytes[i] != 0x03 || bytes[i + 1] != (byte) 0xE7) i++; // prefix length 999 as short
+            bytes[i] = (byte) 0xFF;
+            bytes[i + 1] = (byte) 0xFF;
+            Files.write(file, bytes);
+            assertThrows(IOException.class, () -> URITemplateRegistry.builder().snapshot(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void shouldCompileManyTemplatesInParallel() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            URITemplateRegistry.Builder builder = URITemplateRegistry.builder().pool(pool);
+            for (int i = 0; i < 20000; i++) {
+                builder.template("t" + i, "/items/" + i + "/{id}{?q,page}");
+            }
+            URITemplateRegistry registry = builder.build();
+            assertEquals(20000, registry.size());
+            assertEquals("/items/19999/1", registry.template("t19999").expand(1).toString());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.github.hal4j.uritemplate.test;
+
+import com.github.hal4j.uritemplate.URITemplateRouter;
+import com.github.hal4j.uritemplate.URITemplateRouter.Route;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class URITemplateRouterTest {
+
+    private static final URITemplateRouter<String> ROUTER = URITemplateRouter.<String>builder()
+            .route("/orders", "orders")
+            .route("/orders{?page,size}", "orderPage")
+            .route("/orders/{id}", "order")
+            .route("/orders/{id}/items{/item}", "items")
+            .route("/orders/new", "newOrder")
+            .route("/files{/path*}", "files")
+            .route("/files{/path*}{.ext}", "typedFiles")
+            .route("{+any}", "fallback")
+            .build();
+
+    @Test
+    void shouldRouteToMatchingTemplate() {
+        Route<String> route = ROUTER.route("/orders/42/items/7");
+        assertEquals("items", route.target());
+        assertEquals("/orders/{id}/items{/item}", route.template().value());
+        assertEquals("42", route.params().get("id"));
+        assertEquals("7", route.params().get("item"));
+    }
+
+    @Test
+    void shouldPreferLiteralOverExpression() {
+        assertEquals("newOrder", ROUTER.route("/orders/new").target());
+        assertEquals("order", ROUTER.route("/orders/newer").target());
+        assertEquals("orders", ROUTER.route("/orders").target());
+    }
+
+    @Test
+    void shouldPreferSimpleExpressionsOverExplodedAndReserved() {
+        assertEquals("orderPage", ROUTER.route("/orders?page=2").target());
+        assertEquals("files", ROUTER.route("/files/a/b").target());
+        Route<String> typed = ROUTER.route("/files/a/b.txt");
+        assertEquals("typedFiles", typed.target());
+        assertEquals("a/b", typed.params().get("path"));
+        assertEquals("txt", typed.params().get("ext"));
+        assertEquals("fallback", ROUTER.route("/customers/1").target());
+    }
+
+    @Test
+    void shouldReturnSameRouteFromCache() {
+        Route<String> first = ROUTER.route("/orders/5");
+        Route<String> second = ROUTER.route("/orders/5");
+        assertEquals(first.target(), second.target());
+        assertEquals(first.params().toMap(), second.params().toMap());
+    }
+
+    @Test
+    void shouldReturnNullIfNothingMatches() {
+        URITemplateRouter<Integer> router = URITemplateRouter.<Integer>builder()
+                .route("/a/{x}", 1)
+                .route("/b{?q}", 2)
+                .cacheSize(0)
+                .build();
+        assertNull(router.route("/c"));
+        assertNull(router.route("/a/1/2"));
+        assertEquals(2, router.route("/b?q=1").target().intValue());
+    }
+
+    @Test
+    void shouldScaleToManyRoutes() {
+        URITemplateRouter.Builder<Integer> builder = URITemplateRouter.builder();
+        for (int i = 0; i < 10000; i++) {
+            builder.route("/api/v1/resource" + i + "/{id}{?fields}", i);
+        }
+        URITemplateRouter<Integer> router = builder.build();
+        Route<Integer> route = router.route("/api/v1/resource9876/15?fields=a,b");
+        assertEquals(9876, route.target().intValue());
+        assertEquals("15", route.params().get("id"));
+        assertEquals("a,b", route.params().get("fields"));
+    }
+
+    @Test
+    void shouldRejectAdversarialUriInBoundedTime() {
+        URITemplateRouter<Integer> router = URITemplateRouter.<Integer>builder()
+                .route("/{a}-{b}-{c}-{d}-{e}-{f}/x", 1)
+                .cacheSize(0)
+                .build();
+        StringBuilder uri = new StringBuilder("/0");
+        for (int i = 1; i < 200; i++) {
+            uri.append('-').append(i);
+        }
+        assertEquals(1, router.route(uri + "/x").target().intValue());
+        assertTimeoutPreemptively(Duration.ofSeconds(2), () -> assertNull(router.route(uri + "/y")));
+    }
+
+    @Test
+    void shouldRejectDuplicateRoutes() {
+        URITemplateRouter.Builder<Integer> builder = URITemplateRouter.<Integer>builder().route("/a/{x}", 1);
+        assertThrows(IllegalArgumentException.class, () -> builder.route("/a/{x}", 2));
+        assertEquals(2, builder.route("/a/{y}", 3).build().size());
+    }
+
+    @Test
+    void shouldRouteLongerValuesPastPrefixedExpressions() {
+        URITemplateRouter<String> router = URITemplateRouter.<String>builder()
+                .route("/codes/{code:2}", "short")
+                .route("/codes/{code}", "long")
+                .build();
+        assertEquals("short", router.route("/codes/ab").target());
+        Route<String> route = router.route("/codes/abc");
+        assertEquals("long", route.target());
+        assertEquals("abc", route.params().get("code"));
+    }
+
+}
@@ -2,12 +2,20 @@ package com.github.hal4j.uritemplate.test;
 
 import com.github.hal4j.uritemplate.ParamHolder;
 import com.github.hal4j.uritemplate.URITemplate;
+import com.github.hal4j.uritemplate.URITemplateEngine;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
+import static com.github.hal4j.uritemplate.ParamHolder.discardMissing;
+import static com.github.hal4j.uritemplate.ParamHolder.map;
 import static java.util.Arrays.asList;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -91,4 +99,54 @@ class URITemplateTest {
         assertEquals("https://www.example.com/api/1", result);
     }
 
+    @Test
+    void shouldProduceSameResultOnRepeatedExpansion() {
+        URITemplate template = new URITemplate("https://www.example.com/api{/uuid}{?page,size}");
+        Map<String, Object> values = new HashMap<>();
+        values.put("uuid", "1");
+        values.put("page", 2);
+        assertEquals("https://www.example.com/api/1?page=2", template.expand(values).toString());
+        values.put("size", 10);
+        assertEquals("https://www.example.com/api/1?page=2&size=10", template.expand(values).toString());
+        assertEquals("https://www.example.com/api/1?page=2{&size}", template.expandPartial(new Object[]{"1", 2}).toString());
+    }
+
+    @Test
+    void shouldExpandDirectlyIntoWriter() throws IOException {
+        URITemplate template = new URITemplate("https://www.example.com/api{/uuid}{?page,size}");
+        StringWriter writer = new StringWriter();
+        writer.write("<");
+        template.expandTo(discardMissing(map(Collections.singletonMap("uuid", "a b"))), writer);
+        writer.write(">");
+        assertEquals("<https://www.example.com/api/a%20b>", writer.toString());
+    }
+
+    @Test
+    void shouldAppendExpansionToStringBuilder() {
+        URITemplate template = new URITemplate("https://www.example.com/api{/uuid}{?page,size}");
+        StringBuilder sb = new StringBuilder("href=");
+        template.expandTo(discardMissing(map(Collections.singletonMap("page", asList(1, 2)))), sb);
+        assertEquals("href=https://www.example.com/api?page=1,2", sb.toString());
+    }
+
+    @Test
+    void shouldExpandIntoByteBuffer() {
+        URITemplate template = new URITemplate("https://www.example.com/straße{/id}{?q}");
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        template.expandToBytes(discardMissing(map(Collections.singletonMap("q", "ü 1"))), buffer);
+        buffer.flip();
+        assertEquals("https://www.example.com/straße?q=%C3%BC%201", StandardCharsets.UTF_8.decode(buffer).toString());
+    }
+
+    @Test
+    void shouldExpandIntoOutputStream() throws IOException {
+        URITemplateEngine engine = URITemplateEngine.builder().specializationThreshold(1).build();
+        URITemplate template = engine.template("urn:{ns}:{+id}");
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < 3; i++) {
+            template.expandToBytes(discardMissing(map(Collections.singletonMap("id", "a/" + i))), stream);
+        }
+        assertEquals("urn::a/0urn::a/1urn::a/2", new String(stream.toByteArray(), StandardCharsets.US_ASCII));
+    }
+
 }
@@ -38,4 +38,11 @@ class URIVarComponentTest {
         assertFalse(component.prefixLength().isPresent());
     }
 
+    @Test
+    void shouldCorrectlyParseDottedPercentEncodedName() {
+        URIVarComponent component = URIVarComponent.parse("a_1.%C3%bc.b:5");
+        assertEquals("a_1.%C3%bc.b", component.name());
+        assertEquals(5, (int) component.prefixLength().get());
+    }
+
 }
@@ -0,0 +1,49 @@
+package com.github.hal4j.uritemplate.test.rfc6570;
+
+import com.github.hal4j.uritemplate.CompiledURITemplate;
+import com.github.hal4j.uritemplate.ParamHolder;
+import com.github.hal4j.uritemplate.URITemplateParser;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+import static com.github.hal4j.uritemplate.ParamHolder.discardMissing;
+import static com.github.hal4j.uritemplate.ParamHolder.map;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Differential test of specialized expansion code against the interpreter on all RFC 6570 examples.
+ */
+public class SpecializedExpansionTest {
+
+    public static Stream<Arguments> testValues() {
+        return Stream.of(
+                SimpleStringExpansionTest.testValues(),
+                ReservedExpansionTest.testValues(),
+                FragmentExpansionTest.testValues(),
+                DotPrefixExpansionTest.testValues(),
+                PathSegmentExpansionTest.testValues(),
+                PathStyleParameterExpansionTest.testValues(),
+                FormStyleQueryExpansionTest.testValues(),
+                FormStyleQueryContinuationTest.testValues())
+                .flatMap(s -> s);
+    }
+
+    @ParameterizedTest
+    @MethodSource("testValues")
+    public void specializedExpansionShouldMatchInterpreter(String template, String expectation) {
+        ParamHolder params = discardMissing(map(RFC6570Definitions.VALUES));
+        CompiledURITemplate compiled = URITemplateParser.compile(template);
+        assertFalse(compiled.isSpecialized());
+        String interpreted = compiled.expand(params, false);
+        String specialized = compiled.specialize().expand(params, false);
+        assertTrue(compiled.isSpecialized());
+        assertEquals(interpreted, specialized, "Specialized expansion differs for " + template);
+        assertEquals(expectation, specialized, "Incorrect expansion of " + template);
+    }
+
+}